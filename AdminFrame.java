@@ -2,6 +2,9 @@ import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Admin Dashboard Frame - Teacher Management
@@ -13,11 +16,71 @@ public class AdminFrame extends JFrame {
     private JTextField searchField;
     private JComboBox<String> departmentFilter;
     private JLabel totalTeachersLabel, departmentsLabel, totalClassesLabel, activeLabel;
+    private JLabel loadingLabel;
+    private Timer searchDebounce;
+    
+    // Whole teacher directory, indexed for local filtering once loaded
+    private TeacherDirectory directory;
+    
+    // Wait this long after the last keystroke before searching
+    private static final int SEARCH_DEBOUNCE_MS = 250;
+    
+    private static final String TEACHER_COLUMNS =
+        "SELECT teacher_code, full_name, " +
+        "(SELECT email FROM users WHERE user_id = teachers.user_id) as email, " +
+        "department, subject, classes, status FROM teachers";
+    private static final String TEXT_MATCH =
+        "(LOWER(full_name) LIKE ? OR LOWER(teacher_code) LIKE ? OR LOWER(subject) LIKE ?)";
+    
+    // One fixed SQL string per filter combination so each stays a cached prepared statement
+    static final String SEARCH_ALL = TEACHER_COLUMNS + " ORDER BY teacher_code";
+    static final String SEARCH_TEXT = TEACHER_COLUMNS + " WHERE " + TEXT_MATCH + " ORDER BY teacher_code";
+    static final String SEARCH_DEPT = TEACHER_COLUMNS + " WHERE department = ? ORDER BY teacher_code";
+    static final String SEARCH_TEXT_DEPT = TEACHER_COLUMNS + " WHERE " + TEXT_MATCH +
+        " AND department = ? ORDER BY teacher_code";
+    static final String TEACHER_BY_ID = TEACHER_COLUMNS + " WHERE teacher_id = ?";
+    
+    static final String ADD_USER_SQL =
+        "INSERT INTO users (email, password, role) VALUES (?, ?, 'teacher') RETURNING user_id";
+    static {
+        SlowQueryLog.sensitive(ADD_USER_SQL);
+    }
+    static final String NEXT_TEACHER_CODE_SQL =
+        "SELECT 'T' || LPAD((COUNT(*) + 1)::text, 3, '0') as code FROM teachers";
+    static final String ADD_TEACHER_SQL =
+        "INSERT INTO teachers (user_id, teacher_code, full_name, " +
+        "department, subject, classes, status) VALUES (?, ?, ?, ?, ?, ?, 'Active')";
+    
+    // Runs all database work off the event dispatch thread
+    private final AsyncLoader loader = new AsyncLoader();
+    
+    // Both queries start before the components are built; logs time-to-interactive
+    private final StartupPipeline startup =
+        new StartupPipeline("AdminFrame", "statistics shown", "teachers shown");
+    
+    // Teachers added or changed by other clients
+    private final Consumer<ChangeFeed.Change> changeSubscriber = this::onRemoteChange;
+    private final Timer remoteRefresh = new Timer(500, e -> applyRemoteChanges());
+    private final List<Integer> remoteAddedTeachers = new ArrayList<>();
+    private boolean remoteReload;
     
     public AdminFrame() {
-        initializeUI();
+        startup.fetch(null, "connection pool", DatabaseConfig::getPool);
+        startup.fetch("statistics", "statistics query", SchoolStats::fetch);
+        startup.fetch("teachers", "teacher directory query",
+            () -> new TeacherDirectory(fetchTeachers(SEARCH_ALL, List.of())));
+        startup.time("build UI", this::initializeUI);
         loadStatistics();
         loadTeachers();
+        remoteRefresh.setRepeats(false);
+        ChangeFeed.get().subscribe(changeSubscriber);
+    }
+    
+    @Override
+    public void dispose() {
+        ChangeFeed.get().unsubscribe(changeSubscriber);
+        remoteRefresh.stop();
+        super.dispose();
     }
     
     private void initializeUI() {
@@ -78,6 +141,33 @@ public class AdminFrame extends JFrame {
         logoutButton.setFocusPainted(false);
         logoutButton.addActionListener(e -> logout());
         
+        JButton exportButton = new JButton("Export");
+        exportButton.setBackground(Color.WHITE);
+        exportButton.setForeground(new Color(79, 70, 229));
+        exportButton.setFocusPainted(false);
+        JPopupMenu exportMenu = new JPopupMenu();
+        addExportItem(exportMenu, "Teachers", CsvExporter.SCHOOL_TEACHERS);
+        addExportItem(exportMenu, "Students", CsvExporter.SCHOOL_STUDENTS);
+        addExportItem(exportMenu, "Attendance", CsvExporter.SCHOOL_ATTENDANCE);
+        addExportItem(exportMenu, "Marks", CsvExporter.SCHOOL_MARKS);
+        addExportItem(exportMenu, "Fees", CsvExporter.SCHOOL_FEES);
+        exportButton.addActionListener(e -> exportMenu.show(exportButton, 0, exportButton.getHeight()));
+        
+        JButton diagnosticsButton = new JButton("Diagnostics");
+        diagnosticsButton.setBackground(Color.WHITE);
+        diagnosticsButton.setForeground(new Color(79, 70, 229));
+        diagnosticsButton.setFocusPainted(false);
+        diagnosticsButton.addActionListener(e -> new DiagnosticsDialog(this).setVisible(true));
+        
+        JButton reportButton = new JButton("Weekly Report");
+        reportButton.setBackground(Color.WHITE);
+        reportButton.setForeground(new Color(79, 70, 229));
+        reportButton.setFocusPainted(false);
+        reportButton.addActionListener(e -> new SchoolReportDialog(this).setVisible(true));
+        
+        rightPanel.add(reportButton);
+        rightPanel.add(diagnosticsButton);
+        rightPanel.add(exportButton);
         rightPanel.add(logoutButton);
         
         headerPanel.add(leftPanel, BorderLayout.WEST);
@@ -93,8 +183,8 @@ public class AdminFrame extends JFrame {
         
         // Create stat cards
         JPanel totalTeachersCard = createStatCard("Total Teachers", "0", new Color(79, 70, 229));
-        JPanel departmentsCard = createStatCard("Departments", "8", new Color(16, 185, 129));
-        JPanel totalClassesCard = createStatCard("Total Classes", "45", new Color(245, 158, 11));
+        JPanel departmentsCard = createStatCard("Departments", "0", new Color(16, 185, 129));
+        JPanel totalClassesCard = createStatCard("Total Classes", "0", new Color(245, 158, 11));
         JPanel activeCard = createStatCard("Active Today", "0", new Color(239, 68, 68));
         
         statsPanel.add(totalTeachersCard);
@@ -125,6 +215,10 @@ public class AdminFrame extends JFrame {
         // Store reference for updating
         if (title.equals("Total Teachers")) {
             totalTeachersLabel = valueLabel;
+        } else if (title.equals("Departments")) {
+            departmentsLabel = valueLabel;
+        } else if (title.equals("Total Classes")) {
+            totalClassesLabel = valueLabel;
         } else if (title.equals("Active Today")) {
             activeLabel = valueLabel;
         }
@@ -144,9 +238,19 @@ public class AdminFrame extends JFrame {
         searchPanel.setBackground(Color.WHITE);
         
         searchField = new JTextField(20);
-        searchField.addKeyListener(new java.awt.event.KeyAdapter() {
-            public void keyReleased(java.awt.event.KeyEvent e) {
-                filterTeachers();
+        
+        // Debounce keystrokes: only search once typing pauses
+        searchDebounce = new Timer(SEARCH_DEBOUNCE_MS, e -> filterTeachers());
+        searchDebounce.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                onSearchTextChanged();
+            }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                onSearchTextChanged();
+            }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                onSearchTextChanged();
             }
         });
         
@@ -168,6 +272,10 @@ public class AdminFrame extends JFrame {
         searchPanel.add(departmentFilter);
         searchPanel.add(addButton);
         
+        loadingLabel = new JLabel(" ");
+        loadingLabel.setForeground(Color.GRAY);
+        searchPanel.add(loadingLabel);
+        
         // Table
         String[] columnNames = {"ID", "Name", "Email", "Department", "Subject", "Classes", "Status"};
         tableModel = new DefaultTableModel(columnNames, 0) {
@@ -193,129 +301,187 @@ public class AdminFrame extends JFrame {
     }
     
     private void loadStatistics() {
-        try {
-            // Count total teachers
-            ResultSet rs = DatabaseConfig.executeQuery(
-                "SELECT COUNT(*) as count FROM teachers");
-            if (rs.next()) {
-                totalTeachersLabel.setText(String.valueOf(rs.getInt("count")));
-            }
-            rs.close();
-            
-            // Count active teachers
-            rs = DatabaseConfig.executeQuery(
-                "SELECT COUNT(*) as count FROM teachers WHERE status = 'Active'");
-            if (rs.next()) {
-                activeLabel.setText(String.valueOf(rs.getInt("count")));
-            }
-            rs.close();
-            
-        } catch (SQLException e) {
+        JLabel[] cards = {totalTeachersLabel, departmentsLabel, totalClassesLabel, activeLabel};
+        for (JLabel label : cards) {
+            label.setText("…");
+        }
+        
+        loader.submit("statistics", () -> startup.take("statistics", SchoolStats::fetch), stats -> {
+            totalTeachersLabel.setText(String.valueOf(stats.totalTeachers));
+            departmentsLabel.setText(String.valueOf(stats.departments));
+            totalClassesLabel.setText(String.valueOf(stats.totalClasses));
+            activeLabel.setText(String.valueOf(stats.activeTeachers));
+            startup.reached("statistics shown");
+        }, e -> {
             e.printStackTrace();
+            for (JLabel label : cards) {
+                label.setText("-");
+            }
+            startup.reached("statistics shown");
             JOptionPane.showMessageDialog(this,
                 "Error loading statistics: " + e.getMessage(),
                 "Database Error",
                 JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
     
     private void loadTeachers() {
-        try {
-            tableModel.setRowCount(0);
-            
-            String query = "SELECT teacher_code, full_name, " +
-                          "(SELECT email FROM users WHERE user_id = teachers.user_id) as email, " +
-                          "department, subject, classes, status " +
-                          "FROM teachers ORDER BY teacher_code";
-            
-            ResultSet rs = DatabaseConfig.executeQuery(query);
-            
-            while (rs.next()) {
-                String teacherCode = rs.getString("teacher_code");
-                String name = rs.getString("full_name");
-                String email = rs.getString("email");
-                String department = rs.getString("department");
-                String subject = rs.getString("subject");
-                
-                // Handle PostgreSQL array
-                Array classesArray = rs.getArray("classes");
-                String classes = "";
-                if (classesArray != null) {
-                    String[] classArr = (String[]) classesArray.getArray();
-                    classes = String.join(", ", classArr);
-                }
-                
-                String status = rs.getString("status");
-                
-                tableModel.addRow(new Object[]{
-                    teacherCode, name, email, department, subject, classes, status
-                });
-            }
-            
-            rs.close();
-            
-        } catch (SQLException e) {
+        loadingLabel.setText("Loading…");
+        loader.submit("teachers", () -> startup.take("teachers",
+            () -> new TeacherDirectory(fetchTeachers(SEARCH_ALL, List.of()))), loaded -> {
+            directory = loaded;
+            filterTeachers();
+            startup.reached("teachers shown");
+        }, e -> {
             e.printStackTrace();
+            loadingLabel.setText(" ");
+            startup.reached("teachers shown");
             JOptionPane.showMessageDialog(this,
                 "Error loading teachers: " + e.getMessage(),
                 "Database Error",
                 JOptionPane.ERROR_MESSAGE);
+        });
+    }
+    
+    /**
+     * Another client changed the teachers table: new teachers are added to
+     * the directory one by one, anything else reloads it
+     */
+    private void onRemoteChange(ChangeFeed.Change change) {
+        if (!change.table.equals("teachers")) {
+            return;
+        }
+        if (change.op.equals("insert") && change.teacherId != 0) {
+            remoteAddedTeachers.add(change.teacherId);
+        } else {
+            remoteReload = true;
+        }
+        if (!remoteRefresh.isRunning()) {
+            remoteRefresh.start();
+        }
+    }
+    
+    private void applyRemoteChanges() {
+        loadStatistics();
+        if (remoteReload || directory == null) {
+            remoteReload = false;
+            remoteAddedTeachers.clear();
+            loadTeachers();
+            return;
+        }
+        
+        List<Integer> added = new ArrayList<>(remoteAddedTeachers);
+        remoteAddedTeachers.clear();
+        loader.run(() -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (int teacherId : added) {
+                rows.addAll(fetchTeachers(TEACHER_BY_ID, List.of(teacherId)));
+            }
+            return rows;
+        }, rows -> {
+            if (directory != null) {
+                for (Object[] row : rows) {
+                    directory.add(row);
+                }
+                filterTeachers();
+            }
+        }, Throwable::printStackTrace);
+    }
+    
+    private void onSearchTextChanged() {
+        if (directory != null) {
+            filterTeachers(); // Local filtering is instant; no need to wait for typing to pause
+        } else {
+            searchDebounce.restart();
         }
     }
     
     private void filterTeachers() {
-        String searchText = searchField.getText().toLowerCase();
+        searchDebounce.stop();
+        String searchText = searchField.getText().trim().toLowerCase();
         String selectedDept = (String) departmentFilter.getSelectedItem();
+        boolean byText = !searchText.isEmpty();
+        boolean byDept = !selectedDept.equals("All Departments");
         
-        try {
-            tableModel.setRowCount(0);
-            
-            StringBuilder query = new StringBuilder(
-                "SELECT teacher_code, full_name, " +
-                "(SELECT email FROM users WHERE user_id = teachers.user_id) as email, " +
-                "department, subject, classes, status FROM teachers WHERE 1=1"
-            );
-            
-            if (!searchText.isEmpty()) {
-                query.append(" AND (LOWER(full_name) LIKE '%").append(searchText)
-                     .append("%' OR LOWER(teacher_code) LIKE '%").append(searchText)
-                     .append("%' OR LOWER(subject) LIKE '%").append(searchText).append("%')");
+        if (directory != null) {
+            showTeachers(directory.filter(searchText, byDept ? selectedDept : null));
+            return;
+        }
+        
+        // Directory still loading: search in the database instead
+        String query = byText ? (byDept ? SEARCH_TEXT_DEPT : SEARCH_TEXT)
+                              : (byDept ? SEARCH_DEPT : SEARCH_ALL);
+        List<String> params = new ArrayList<>();
+        if (byText) {
+            String pattern = "%" + escapeLike(searchText) + "%";
+            params.add(pattern);
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (byDept) {
+            params.add(selectedDept);
+        }
+        
+        // Supersedes (and cancels on the server) any search still running
+        loadingLabel.setText("Loading…");
+        loader.submit("search", () -> fetchTeachers(query, params), rows -> {
+            if (directory == null) {
+                showTeachers(rows);
             }
-            
-            if (!selectedDept.equals("All Departments")) {
-                query.append(" AND department = '").append(selectedDept).append("'");
+        }, e -> {
+            e.printStackTrace();
+            loadingLabel.setText(" ");
+        });
+    }
+    
+    /**
+     * Escape LIKE wildcards so user input only ever matches literally
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    static List<Object[]> fetchTeachers(String query, List<?> params) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(query)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
             }
+            AsyncLoader.track(pstmt);
             
-            query.append(" ORDER BY teacher_code");
-            
-            ResultSet rs = DatabaseConfig.executeQuery(query.toString());
-            
-            while (rs.next()) {
-                String teacherCode = rs.getString("teacher_code");
-                String name = rs.getString("full_name");
-                String email = rs.getString("email");
-                String department = rs.getString("department");
-                String subject = rs.getString("subject");
-                
-                Array classesArray = rs.getArray("classes");
-                String classes = "";
-                if (classesArray != null) {
-                    String[] classArr = (String[]) classesArray.getArray();
-                    classes = String.join(", ", classArr);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String teacherCode = rs.getString("teacher_code");
+                    String name = rs.getString("full_name");
+                    String email = rs.getString("email");
+                    String department = rs.getString("department");
+                    String subject = rs.getString("subject");
+                    
+                    // Handle PostgreSQL array
+                    Array classesArray = rs.getArray("classes");
+                    String classes = "";
+                    if (classesArray != null) {
+                        String[] classArr = (String[]) classesArray.getArray();
+                        classes = String.join(", ", classArr);
+                    }
+                    
+                    String status = rs.getString("status");
+                    
+                    rows.add(new Object[]{
+                        teacherCode, name, email, department, subject, classes, status
+                    });
                 }
-                
-                String status = rs.getString("status");
-                
-                tableModel.addRow(new Object[]{
-                    teacherCode, name, email, department, subject, classes, status
-                });
             }
-            
-            rs.close();
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        return rows;
+    }
+    
+    private void showTeachers(List<Object[]> rows) {
+        tableModel.setRowCount(0);
+        for (Object[] row : rows) {
+            tableModel.addRow(row);
+        }
+        loadingLabel.setText(" ");
     }
     
     private void showAddTeacherDialog() {
@@ -358,14 +524,19 @@ public class AdminFrame extends JFrame {
                 return;
             }
             
-            if (addTeacher(nameField.getText(), emailField.getText(),
-                          new String(passwordField.getPassword()),
-                          (String)deptCombo.getSelectedItem(),
-                          subjectField.getText(), classesField.getText())) {
+            addTeacher(nameField.getText(), emailField.getText(),
+                      new String(passwordField.getPassword()),
+                      (String)deptCombo.getSelectedItem(),
+                      subjectField.getText(), classesField.getText(), row -> {
                 dialog.dispose();
-                loadTeachers();
+                if (directory != null) {
+                    directory.add(row);
+                    filterTeachers();
+                } else {
+                    loadTeachers();
+                }
                 loadStatistics();
-            }
+            });
         });
         
         cancelButton.addActionListener(e -> dialog.dispose());
@@ -377,64 +548,74 @@ public class AdminFrame extends JFrame {
         dialog.setVisible(true);
     }
     
-    private boolean addTeacher(String name, String email, String password,
-                              String dept, String subject, String classes) {
-        try {
+    private void addTeacher(String name, String email, String password, String dept,
+                            String subject, String classes, Consumer<Object[]> onSaved) {
+        loader.run(() -> {
             // First, insert user
-            String userQuery = "INSERT INTO users (email, password, role) VALUES (?, ?, 'teacher') RETURNING user_id";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(userQuery);
-            pstmt.setString(1, email);
-            pstmt.setString(2, password);
-            
-            ResultSet rs = pstmt.executeQuery();
             int userId = 0;
-            if (rs.next()) {
-                userId = rs.getInt("user_id");
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(ADD_USER_SQL)) {
+                pstmt.setString(1, email);
+                pstmt.setString(2, password);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        userId = rs.getInt("user_id");
+                    }
+                }
             }
-            rs.close();
-            pstmt.close();
             
             // Generate teacher code
-            String codeQuery = "SELECT 'T' || LPAD((COUNT(*) + 1)::text, 3, '0') as code FROM teachers";
-            rs = DatabaseConfig.executeQuery(codeQuery);
             String teacherCode = "T001";
-            if (rs.next()) {
-                teacherCode = rs.getString("code");
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(NEXT_TEACHER_CODE_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    teacherCode = rs.getString("code");
+                }
             }
-            rs.close();
             
             // Insert teacher
-            String teacherQuery = "INSERT INTO teachers (user_id, teacher_code, full_name, " +
-                                 "department, subject, classes, status) VALUES (?, ?, ?, ?, ?, ?, 'Active')";
-            pstmt = DatabaseConfig.prepareStatement(teacherQuery);
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, teacherCode);
-            pstmt.setString(3, name);
-            pstmt.setString(4, dept);
-            pstmt.setString(5, subject);
-            
-            // Convert classes string to array
-            String[] classArray = classes.split(",");
-            for (int i = 0; i < classArray.length; i++) {
-                classArray[i] = classArray[i].trim();
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(ADD_TEACHER_SQL)) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, teacherCode);
+                pstmt.setString(3, name);
+                pstmt.setString(4, dept);
+                pstmt.setString(5, subject);
+                
+                // Convert classes string to array
+                String[] classArray = classes.split(",");
+                for (int i = 0; i < classArray.length; i++) {
+                    classArray[i] = classArray[i].trim();
+                }
+                Array sqlArray = pstmt.getConnection().createArrayOf("text", classArray);
+                pstmt.setArray(6, sqlArray);
+                
+                pstmt.executeUpdate();
+                
+                // Row as the directory holds it
+                return new Object[]{
+                    teacherCode, name, email, dept, subject, String.join(", ", classArray), "Active"
+                };
             }
-            Array sqlArray = DatabaseConfig.getConnection().createArrayOf("text", classArray);
-            pstmt.setArray(6, sqlArray);
-            
-            pstmt.executeUpdate();
-            pstmt.close();
-            
+        }, row -> {
             JOptionPane.showMessageDialog(this, "Teacher added successfully!");
-            return true;
-            
-        } catch (SQLException e) {
+            onSaved.accept(row);
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
                 "Error adding teacher: " + e.getMessage(),
                 "Database Error",
                 JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
+        });
+    }
+    
+    /**
+     * Menu entry exporting one school-wide list to CSV
+     */
+    private void addExportItem(JPopupMenu menu, String what, String query) {
+        JMenuItem item = new JMenuItem(what);
+        item.addActionListener(e -> ExportDialog.start(this, loader, "school " + what.toLowerCase(),
+            query, "school-" + what.toLowerCase() + ".csv"));
+        menu.add(item);
     }
     
     private void logout() {
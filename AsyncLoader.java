@@ -0,0 +1,170 @@
+import javax.swing.*;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs database work off the Swing event dispatch thread and publishes
+ * the results back on it.
+ *
+ * Loads are keyed: submitting a new load for a key supersedes the one
+ * already running for it, and a superseded or cancelled load never
+ * reaches its callbacks. A load that registers its statement with
+ * track() also has the query cancelled on the server when superseded.
+ * Use one AsyncLoader per frame.
+ */
+public class AsyncLoader {
+
+    /**
+     * Work to run on the background executor
+     */
+    public interface Query<T> {
+        T run() throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final ThreadLocal<Ticket> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Ticket> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run a load for the key, cancelling any earlier load for the same key.
+     * Callbacks run on the EDT, and only if this load is still current.
+     */
+    public <T> void submit(String key, Query<T> query, Consumer<T> onSuccess,
+                           Consumer<Exception> onFailure) {
+        Ticket ticket = new Ticket(key);
+        Ticket previous = inFlight.put(key, ticket);
+        if (previous != null) {
+            previous.cancel();
+        }
+        ticket.future = EXECUTOR.submit(() -> execute(ticket, query, onSuccess, onFailure));
+    }
+
+    /**
+     * Run one-off work (typically a write) that nothing else supersedes
+     */
+    public <T> void run(Query<T> query, Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        Ticket ticket = new Ticket(null);
+        ticket.future = EXECUTOR.submit(() -> execute(ticket, query, onSuccess, onFailure));
+    }
+
+    /**
+     * Cancel every keyed load that has not published yet
+     */
+    public void cancelAll() {
+        for (Ticket ticket : inFlight.values()) {
+            ticket.cancel();
+        }
+        inFlight.clear();
+    }
+
+    public boolean isLoading(String key) {
+        return inFlight.containsKey(key);
+    }
+    
+    /**
+     * Register the statement the current load is about to execute, so that
+     * superseding the load cancels the query on the server. Call from inside
+     * a Query; does nothing elsewhere.
+     */
+    public static void track(Statement stmt) throws SQLException {
+        Ticket ticket = CURRENT.get();
+        if (ticket == null) {
+            return;
+        }
+        ticket.statement = stmt;
+        if (ticket.cancelled) {
+            stmt.cancel();
+        }
+    }
+
+    private <T> void execute(Ticket ticket, Query<T> query, Consumer<T> onSuccess,
+                             Consumer<Exception> onFailure) {
+        if (ticket.cancelled) {
+            return;
+        }
+        T result = null;
+        Exception failure = null;
+        CURRENT.set(ticket);
+        try {
+            result = query.run();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            CURRENT.remove();
+            ticket.statement = null;
+        }
+
+        final T value = result;
+        final Exception error = failure;
+        SwingUtilities.invokeLater(() -> {
+            if (ticket.cancelled) {
+                return;
+            }
+            if (ticket.key != null && !inFlight.remove(ticket.key, ticket)) {
+                return; // Superseded while running
+            }
+            if (error == null) {
+                onSuccess.accept(value);
+            } else {
+                onFailure.accept(error);
+            }
+        });
+    }
+
+    /**
+     * Shared background executor: virtual threads on Java 21+, daemon threads otherwise
+     */
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "edutrack-loader-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private static final class Ticket {
+        final String key;
+        volatile Future<?> future;
+        volatile Statement statement;
+        volatile boolean cancelled;
+
+        Ticket(String key) {
+            this.key = key;
+        }
+
+        void cancel() {
+            cancelled = true;
+            // Don't interrupt: on virtual threads that closes the pooled socket
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+            Statement running = statement;
+            if (running != null) {
+                try {
+                    running.cancel();
+                } catch (SQLException e) {
+                    // Query already finished
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class's attendance for the school year, held as bitsets so that
+ * percentages, streaks and weekday patterns are answered in memory.
+ *
+ * Bit i stands for firstDay + i. Each student has a bitset of the days
+ * they were marked present; schoolDays holds every day on which anyone in
+ * the class was marked, so weekends and holidays never count against a
+ * student. An unmarked school day counts as absent, as on the attendance
+ * tab. Students are keyed by student ID, as roll numbers may repeat.
+ * Loaded in one pass by fetch(); record() keeps it current as marks are
+ * saved.
+ *
+ * Call from the EDT once loaded.
+ */
+public class AttendanceHistory {
+
+    // Students with no attendance still get a row (with a null date)
+    static final String HISTORY_SQL =
+        "SELECT s.student_id, s.roll_no, s.full_name, a.attendance_date, a.status " +
+        "FROM students s " +
+        "LEFT JOIN attendance a ON s.student_id = a.student_id " +
+        "AND a.attendance_date >= ? " +
+        "WHERE s.class_name = ? AND s.teacher_id = ? " +
+        "ORDER BY s.roll_no, s.student_id, a.attendance_date";
+
+    // Where the school year starts, e.g. -Dedutrack.attendance.yearStart=--06-01
+    private static final MonthDay YEAR_START =
+        MonthDay.parse(System.getProperty("edutrack.attendance.yearStart", "--06-01"));
+
+    /**
+     * One student's figures over a range of days
+     */
+    public static final class StudentSummary {
+        final String rollNo;
+        final String name;
+        final int schoolDays;
+        final int daysPresent;
+        final int currentAbsenceStreak;
+        final int longestAbsenceStreak;
+        final int[] absencesByWeekday; // Monday first
+
+        StudentSummary(String rollNo, String name, int schoolDays, int daysPresent,
+                       int currentAbsenceStreak, int longestAbsenceStreak, int[] absencesByWeekday) {
+            this.rollNo = rollNo;
+            this.name = name;
+            this.schoolDays = schoolDays;
+            this.daysPresent = daysPresent;
+            this.currentAbsenceStreak = currentAbsenceStreak;
+            this.longestAbsenceStreak = longestAbsenceStreak;
+            this.absencesByWeekday = absencesByWeekday;
+        }
+
+        /**
+         * Share of school days present, 0-100; 100 if there were none
+         */
+        public double getPercentage() {
+            return schoolDays == 0 ? 100 : 100.0 * daysPresent / schoolDays;
+        }
+
+        /**
+         * The weekday most often missed, or null if never absent
+         */
+        public DayOfWeek getMostMissedDay() {
+            int worst = -1;
+            for (int d = 0; d < absencesByWeekday.length; d++) {
+                if (absencesByWeekday[d] > 0 && (worst < 0 || absencesByWeekday[d] > absencesByWeekday[worst])) {
+                    worst = d;
+                }
+            }
+            return worst < 0 ? null : DayOfWeek.of(worst + 1);
+        }
+    }
+
+    private final String className;
+    private final LocalDate firstDay;
+    private final List<String> rollNos = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<Integer, Integer> indexByStudentId = new HashMap<>();
+    private final List<BitSet> present = new ArrayList<>();
+    private final BitSet schoolDays = new BitSet();
+    private final BitSet[] weekdays = new BitSet[7];
+
+    private AttendanceHistory(String className, LocalDate firstDay) {
+        this.className = className;
+        this.firstDay = firstDay;
+        for (int d = 0; d < weekdays.length; d++) {
+            weekdays[d] = new BitSet();
+        }
+    }
+
+    /**
+     * First day of the school year that today falls in
+     */
+    public static LocalDate schoolYearStart(LocalDate today) {
+        LocalDate start = YEAR_START.atYear(today.getYear());
+        return start.isAfter(today) ? start.minusYears(1) : start;
+    }
+
+    /**
+     * Load a class's attendance since the start of the school year. Runs off the EDT.
+     */
+    public static AttendanceHistory fetch(int teacherId, String className) throws SQLException {
+        AttendanceHistory history = new AttendanceHistory(className, schoolYearStart(LocalDate.now()));
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(HISTORY_SQL)) {
+            pstmt.setObject(1, history.firstDay);
+            pstmt.setString(2, className);
+            pstmt.setInt(3, teacherId);
+            AsyncLoader.track(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int studentId = rs.getInt("student_id");
+                    if (!history.indexByStudentId.containsKey(studentId)) {
+                        history.addStudent(studentId, rs.getString("roll_no"), rs.getString("full_name"));
+                    }
+                    LocalDate date = rs.getObject("attendance_date", LocalDate.class);
+                    if (date != null) {
+                        history.record(studentId, date, rs.getString("status"));
+                    }
+                }
+            }
+        }
+        return history;
+    }
+
+    private void addStudent(int studentId, String rollNo, String name) {
+        indexByStudentId.put(studentId, rollNos.size());
+        rollNos.add(rollNo);
+        names.add(name);
+        present.add(new BitSet());
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    public int getStudentCount() {
+        return rollNos.size();
+    }
+
+    /**
+     * Apply a saved mark. Returns false if the student is not in this
+     * history (e.g. added since it was loaded), so it should be reloaded.
+     */
+    public boolean record(int studentId, LocalDate date, String status) {
+        Integer student = indexByStudentId.get(studentId);
+        if (student == null) {
+            return false;
+        }
+        int day = dayIndex(date);
+        if (day < 0) {
+            return true; // Before this school year
+        }
+        present.get(student).set(day, "Present".equals(status));
+        if (!schoolDays.get(day)) {
+            schoolDays.set(day);
+            weekdays[date.getDayOfWeek().getValue() - 1].set(day);
+        }
+        return true;
+    }
+
+    /**
+     * Every student's figures for the days from..to (inclusive), in roll number order
+     */
+    public List<StudentSummary> summarize(LocalDate from, LocalDate to) {
+        BitSet days = schoolDaysBetween(from, to);
+        int total = days.cardinality();
+        List<StudentSummary> summaries = new ArrayList<>(rollNos.size());
+        for (int s = 0; s < rollNos.size(); s++) {
+            BitSet attended = (BitSet) present.get(s).clone();
+            attended.and(days);
+            BitSet absent = (BitSet) days.clone();
+            absent.andNot(attended);
+
+            int[] byWeekday = new int[weekdays.length];
+            for (int d = 0; d < weekdays.length; d++) {
+                BitSet missed = (BitSet) absent.clone();
+                missed.and(weekdays[d]);
+                byWeekday[d] = missed.cardinality();
+            }
+            summaries.add(new StudentSummary(rollNos.get(s), names.get(s), total, attended.cardinality(),
+                currentStreak(days, absent), longestStreak(days, absent), byWeekday));
+        }
+        return summaries;
+    }
+
+    /**
+     * Students present on fewer than minPercent of the school days in the
+     * range, worst first. Below 90% is the usual definition of chronic absence.
+     */
+    public List<StudentSummary> chronicAbsentees(LocalDate from, LocalDate to, double minPercent) {
+        List<StudentSummary> absentees = new ArrayList<>();
+        for (StudentSummary summary : summarize(from, to)) {
+            if (summary.getPercentage() < minPercent) {
+                absentees.add(summary);
+            }
+        }
+        absentees.sort((a, b) -> Double.compare(a.getPercentage(), b.getPercentage()));
+        return absentees;
+    }
+
+    /**
+     * Absences across the whole class per weekday, Monday first
+     */
+    public int[] absencesByWeekday(LocalDate from, LocalDate to) {
+        int[] totals = new int[weekdays.length];
+        for (StudentSummary summary : summarize(from, to)) {
+            for (int d = 0; d < totals.length; d++) {
+                totals[d] += summary.absencesByWeekday[d];
+            }
+        }
+        return totals;
+    }
+
+    private BitSet schoolDaysBetween(LocalDate from, LocalDate to) {
+        int start = Math.max(0, dayIndex(from));
+        int end = Math.max(start, dayIndex(to) + 1);
+        // Same indexes as the student bitsets, just limited to the range
+        BitSet days = (BitSet) schoolDays.clone();
+        days.clear(0, start);
+        days.clear(end, Math.max(end, days.length()));
+        return days;
+    }
+
+    // School days absent counting back from the last school day in the range
+    private static int currentStreak(BitSet days, BitSet absent) {
+        int streak = 0;
+        for (int day = days.length() - 1; day >= 0 && absent.get(day); day = days.previousSetBit(day - 1)) {
+            streak++;
+        }
+        return streak;
+    }
+
+    private static int longestStreak(BitSet days, BitSet absent) {
+        int longest = 0;
+        int run = 0;
+        for (int day = days.nextSetBit(0); day >= 0; day = days.nextSetBit(day + 1)) {
+            run = absent.get(day) ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+
+    private int dayIndex(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(firstDay, date);
+    }
+}
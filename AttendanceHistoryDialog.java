@@ -0,0 +1,136 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Attendance percentages, absence streaks and weekday patterns for one
+ * class, computed from its AttendanceHistory. Students below the chronic
+ * absence threshold are shown in red.
+ */
+public class AttendanceHistoryDialog extends JDialog {
+
+    private static final double CHRONIC_BELOW = 90.0;
+    private static final String[] RANGES = {"Last 30 days", "Last 90 days", "School year"};
+    private static final String[] COLUMNS = {
+        "Roll No", "Name", "Attendance %", "Present", "School Days",
+        "Absent Streak", "Longest Streak", "Most Missed Day"
+    };
+
+    private final AttendanceHistory history;
+    private final JComboBox<String> rangeSelector = new JComboBox<>(RANGES);
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? Double.class : column >= 3 && column <= 6 ? Integer.class : String.class;
+        }
+    };
+
+    public AttendanceHistoryDialog(Frame owner, AttendanceHistory history) {
+        super(owner, "Attendance History - " + history.getClassName(), false);
+        this.history = history;
+        setSize(900, 550);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.setRowHeight(28);
+        table.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value,
+                    boolean isSelected, boolean hasFocus, int row, int column) {
+                double percent = (Double) value;
+                super.getTableCellRendererComponent(table, String.format("%.1f%%", percent),
+                    isSelected, hasFocus, row, column);
+                setHorizontalAlignment(RIGHT);
+                if (!isSelected) {
+                    setForeground(percent < CHRONIC_BELOW ? new Color(220, 38, 38) : table.getForeground());
+                }
+                return this;
+            }
+        });
+
+        rangeSelector.setSelectedIndex(RANGES.length - 1);
+        rangeSelector.addActionListener(e -> refresh());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Period:"));
+        top.add(rangeSelector);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(summaryLabel, BorderLayout.CENTER);
+        bottom.add(closeButton, BorderLayout.EAST);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(top, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(bottom, BorderLayout.SOUTH);
+        add(panel);
+
+        refresh();
+    }
+
+    public AttendanceHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Recompute for the selected period, e.g. after new marks were saved
+     */
+    public void refresh() {
+        LocalDate to = LocalDate.now();
+        LocalDate from;
+        switch (rangeSelector.getSelectedIndex()) {
+            case 0: from = to.minusDays(29); break;
+            case 1: from = to.minusDays(89); break;
+            default: from = history.getFirstDay(); break;
+        }
+
+        model.setRowCount(0);
+        for (AttendanceHistory.StudentSummary s : history.summarize(from, to)) {
+            DayOfWeek mostMissed = s.getMostMissedDay();
+            model.addRow(new Object[]{
+                s.rollNo,
+                s.name,
+                s.getPercentage(),
+                s.daysPresent,
+                s.schoolDays,
+                s.currentAbsenceStreak,
+                s.longestAbsenceStreak,
+                mostMissed == null ? "-" : mostMissed.getDisplayName(TextStyle.FULL, Locale.getDefault())
+            });
+        }
+
+        List<AttendanceHistory.StudentSummary> chronic = history.chronicAbsentees(from, to, CHRONIC_BELOW);
+        StringBuilder text = new StringBuilder(String.format("%d of %d students below %.0f%% attendance",
+            chronic.size(), history.getStudentCount(), CHRONIC_BELOW));
+        for (int i = 0; i < Math.min(3, chronic.size()); i++) {
+            text.append(i == 0 ? " (lowest: " : ", ").append(chronic.get(i).rollNo)
+                .append(String.format(" %.0f%%", chronic.get(i).getPercentage()));
+        }
+        text.append(chronic.isEmpty() ? ".  Absences:" : ").  Absences:");
+        int[] byWeekday = history.absencesByWeekday(from, to);
+        for (int d = 0; d < byWeekday.length; d++) {
+            if (byWeekday[d] > 0) {
+                text.append("  ").append(DayOfWeek.of(d + 1).getDisplayName(TextStyle.SHORT, Locale.getDefault()))
+                    .append(' ').append(byWeekday[d]);
+            }
+        }
+        summaryLabel.setText(text.toString());
+    }
+}
@@ -0,0 +1,271 @@
+import javax.swing.Timer;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind queue for attendance marks.
+ *
+ * A click updates the table at once and only records the change here.
+ * Repeated clicks for the same student and day collapse into one change
+ * (or none, if the student ends up back where the database has them).
+ * Changes are written in batches, one statement per class, shortly after
+ * the first click or as soon as flush() is called, e.g. on a tab or
+ * class change. Rows whose write failed are remembered so the table can
+ * flag them until they are marked again or reloaded.
+ *
+ * Marks are for the database's CURRENT_DATE, the same day the attendance
+ * tab reads, so the client's clock and time zone never decide the day.
+ *
+ * Use from the EDT only; writes run on the frame's AsyncLoader, one
+ * batch at a time so they reach the database in click order.
+ */
+public class AttendanceWriteQueue {
+
+    static final String UPSERT_SQL =
+        "INSERT INTO attendance (student_id, attendance_date, status, marked_by) " +
+        "SELECT v.student_id, CURRENT_DATE, v.status, ? " +
+        "FROM unnest(?::int[], ?::text[]) AS v(student_id, status) " +
+        "ON CONFLICT (student_id, attendance_date) " +
+        "DO UPDATE SET status = EXCLUDED.status, marked_by = EXCLUDED.marked_by " +
+        "RETURNING student_id, attendance_date";
+
+    /**
+     * One student's attendance for today, and what the database had
+     * before it, so the caller can adjust counts once it is saved
+     */
+    public static final class Change {
+        final String className;
+        final int studentId;
+        final String status;
+        final String previousStatus;
+        LocalDate date; // The day it was saved for; null until then
+
+        Change(String className, int studentId, String status, String previousStatus) {
+            this.className = className;
+            this.studentId = studentId;
+            this.status = status;
+            this.previousStatus = previousStatus;
+        }
+    }
+
+    /**
+     * Told on the EDT after each batch what was saved and what was not;
+     * getFailure() has the reason for the latter
+     */
+    public interface Listener {
+        void flushed(List<Change> saved, List<Change> failed);
+    }
+
+    private final int teacherId;
+    private final AsyncLoader loader;
+    private final Listener listener;
+    private final Timer timer;
+
+    private final Map<String, Change> pending = new LinkedHashMap<>();
+    private final Map<String, Change> inFlight = new HashMap<>();
+    private final Map<String, String> failures = new HashMap<>();
+    private boolean flushing;
+    private boolean flushRequested;
+
+    // Batches are numbered; one written again by flushAndWait is skipped if it starts late
+    private final Object writeLock = new Object();
+    private long batchCount;
+    private long lastWritten; // Guarded by writeLock
+
+    public AttendanceWriteQueue(int teacherId, AsyncLoader loader, int delayMillis, Listener listener) {
+        this.teacherId = teacherId;
+        this.loader = loader;
+        this.listener = listener;
+        this.timer = new Timer(delayMillis, e -> flush());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Queue today's status for a student. shownStatus is what the table
+     * showed before the click.
+     */
+    public void mark(String className, int studentId, String status, String shownStatus) {
+        String key = rowKey(className, studentId);
+        failures.remove(key);
+
+        Change queued = pending.remove(key);
+        Change writing = inFlight.get(key);
+        String before = queued != null ? queued.previousStatus
+                      : writing != null ? writing.status
+                      : shownStatus;
+        if (status.equals(before) && writing == null) {
+            return; // Toggled back to what the database has
+        }
+        pending.put(key, new Change(className, studentId, status, before));
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Status still waiting to be written for the student today, or null
+     */
+    public String pendingStatus(String className, int studentId) {
+        String key = rowKey(className, studentId);
+        Change change = pending.containsKey(key) ? pending.get(key) : inFlight.get(key);
+        return change == null ? null : change.status;
+    }
+
+    /**
+     * Why the student's last mark was not saved, or null
+     */
+    public String getFailure(String className, int studentId) {
+        return failures.get(rowKey(className, studentId));
+    }
+
+    /**
+     * Forget reported failures for a class, e.g. after reloading it
+     */
+    public void clearFailures(String className) {
+        failures.keySet().removeIf(k -> k.startsWith(className + "\0"));
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty() || !inFlight.isEmpty();
+    }
+
+    /**
+     * Start writing everything queued now instead of waiting for the timer
+     */
+    public void flush() {
+        timer.stop();
+        if (flushing) {
+            flushRequested = true;
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Change> batch = new ArrayList<>(pending.values());
+        inFlight.putAll(pending);
+        pending.clear();
+        flushing = true;
+
+        long number = ++batchCount;
+        loader.run(() -> write(batch, number), result -> finish(batch, result), e -> {
+            e.printStackTrace();
+            Map<String, String> all = new LinkedHashMap<>();
+            for (Change change : batch) {
+                all.put(rowKey(change.className, change.studentId), e.getMessage());
+            }
+            finish(batch, all);
+        });
+    }
+
+    /**
+     * Write everything queued on the calling thread, e.g. while the
+     * window closes. A batch that is being written is waited for and
+     * written again, as its write may yet fail. Failures are only logged.
+     */
+    public void flushAndWait() {
+        timer.stop();
+        Map<String, Change> unsaved = new LinkedHashMap<>(inFlight);
+        unsaved.putAll(pending); // Later clicks win
+        pending.clear();
+        Map<String, String> failed = write(new ArrayList<>(unsaved.values()), ++batchCount);
+        if (!failed.isEmpty()) {
+            System.err.println("Attendance not saved: " + failed.values());
+        }
+    }
+
+    private void finish(List<Change> batch, Map<String, String> failed) {
+        List<Change> saved = new ArrayList<>();
+        List<Change> notSaved = new ArrayList<>();
+        for (Change change : batch) {
+            inFlight.remove(rowKey(change.className, change.studentId));
+            String error = failed.get(rowKey(change.className, change.studentId));
+            if (error == null) {
+                saved.add(change);
+                failures.remove(rowKey(change.className, change.studentId));
+            } else {
+                notSaved.add(change);
+                failures.put(rowKey(change.className, change.studentId), error);
+            }
+        }
+        flushing = false;
+        listener.flushed(saved, notSaved);
+
+        if (flushRequested) {
+            flushRequested = false;
+            flush();
+        } else if (!pending.isEmpty() && !timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Upsert the batch, one statement per class; returns failures by class and student.
+     * Batches are written one at a time, and not at all once a later one was.
+     */
+    private Map<String, String> write(List<Change> batch, long number) {
+        synchronized (writeLock) {
+            if (number < lastWritten) {
+                return new LinkedHashMap<>(); // Written again by flushAndWait
+            }
+            lastWritten = number;
+            return writeBatch(batch);
+        }
+    }
+
+    private Map<String, String> writeBatch(List<Change> batch) {
+        Map<String, List<Change>> byClass = new LinkedHashMap<>();
+        for (Change change : batch) {
+            byClass.computeIfAbsent(change.className, c -> new ArrayList<>()).add(change);
+        }
+
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Change>> entry : byClass.entrySet()) {
+            upsert(entry.getValue(), failed);
+        }
+        return failed;
+    }
+
+    private void upsert(List<Change> changes, Map<String, String> failed) {
+        int n = changes.size();
+        Integer[] studentId = new Integer[n];
+        String[] statuses = new String[n];
+        Map<Integer, Change> byId = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            studentId[i] = changes.get(i).studentId;
+            statuses[i] = changes.get(i).status;
+            byId.put(studentId[i], changes.get(i));
+        }
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            pstmt.setInt(1, teacherId);
+            pstmt.setArray(2, conn.createArrayOf("integer", studentId));
+            pstmt.setArray(3, conn.createArrayOf("text", statuses));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Change change = byId.remove(rs.getInt("student_id"));
+                    if (change != null) {
+                        change.date = rs.getObject("attendance_date", LocalDate.class);
+                    }
+                }
+            }
+            for (Change change : byId.values()) {
+                failed.put(rowKey(change.className, change.studentId), "Not written");
+            }
+        } catch (SQLException e) {
+            for (Change change : changes) {
+                failed.put(rowKey(change.className, change.studentId), e.getMessage());
+            }
+        }
+    }
+
+    private static String rowKey(String className, int studentId) {
+        return className + "\0" + studentId;
+    }
+}
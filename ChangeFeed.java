@@ -0,0 +1,141 @@
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.swing.*;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Live change notifications from other EduTrack clients.
+ *
+ * One background thread per process holds a dedicated (non-pooled)
+ * connection that LISTENs on the channel the triggers in
+ * migration V5__change_notifications publish to, and hands each change made by
+ * another client to the subscribed frames on the EDT. The connection is
+ * re-opened with backoff if it drops.
+ */
+public class ChangeFeed {
+
+    static final String CHANNEL = "edutrack_changes";
+    private static final int POLL_MILLIS = 10_000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    /**
+     * One changed row: the table, the operation (insert, update, delete),
+     * and the teacher, class and student it belongs to where known
+     * (teacherId and studentId are 0 and className null otherwise)
+     */
+    public static final class Change {
+        final String table;
+        final String op;
+        final int teacherId;
+        final int studentId;
+        final String className;
+
+        Change(String table, String op, int teacherId, int studentId, String className) {
+            this.table = table;
+            this.op = op;
+            this.teacherId = teacherId;
+            this.studentId = studentId;
+            this.className = className;
+        }
+
+        @Override
+        public String toString() {
+            return op + " " + table + " (teacher " + teacherId + ", class " + className +
+                   ", student " + studentId + ")";
+        }
+    }
+
+    private static ChangeFeed instance;
+
+    private final List<Consumer<Change>> subscribers = new CopyOnWriteArrayList<>();
+
+    private ChangeFeed() {
+        Thread thread = new Thread(this::listen, "edutrack-change-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The process-wide feed, started on first use
+     */
+    public static synchronized ChangeFeed get() {
+        if (instance == null) {
+            instance = new ChangeFeed();
+        }
+        return instance;
+    }
+
+    /**
+     * Receive other clients' changes on the EDT until unsubscribed
+     */
+    public void subscribe(Consumer<Change> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<Change> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private void listen() {
+        long backoff = 1000;
+        while (true) {
+            try (Connection conn = DatabaseConfig.openDedicatedConnection()) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                backoff = 1000;
+                while (true) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            try {
+                                dispatch(notification.getParameter());
+                            } catch (RuntimeException e) {
+                                // A malformed payload must not stop the feed
+                                System.err.println("Ignoring change notification \"" +
+                                                   notification.getParameter() + "\": " + e);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Change feed disconnected, retrying in " + backoff / 1000 + "s: " +
+                                   e.getMessage());
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void dispatch(String payload) {
+        // origin|table|op|teacher_id|student_id|class_name
+        String[] parts = payload.split("\\|", 6);
+        if (parts.length < 6 || parts[0].equals(DatabaseConfig.getClientId())) {
+            return;
+        }
+        Change change = new Change(parts[1], parts[2], parseId(parts[3]), parseId(parts[4]),
+            parts[5].isEmpty() ? null : parts[5]);
+        SwingUtilities.invokeLater(() -> {
+            for (Consumer<Change> subscriber : subscribers) {
+                try {
+                    subscriber.accept(change);
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // The other subscribers still get the change
+                }
+            }
+        });
+    }
+
+    private static int parseId(String value) {
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,67 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Tints a table's rows for a few seconds after they changed, e.g. rows
+ * that turned out different from the snapshot the table was first painted
+ * from. Rows are identified by a key the caller reads from the model,
+ * the student ID, since roll numbers may repeat.
+ *
+ * Installed as the table's default renderer, so columns with a renderer
+ * of their own keep it.
+ */
+public class ChangedRowHighlighter extends DefaultTableCellRenderer {
+
+    private static final Color CHANGED = new Color(254, 243, 199);
+    private static final int SHOW_MS = 5000;
+
+    private final JTable table;
+    private final IntFunction<Object> keyOfRow;
+    private final Set<Object> changed = new HashSet<>();
+    private final Timer fade = new Timer(SHOW_MS, e -> clear());
+
+    /**
+     * keyOfRow gives the key of a row by its model index
+     */
+    public ChangedRowHighlighter(JTable table, IntFunction<Object> keyOfRow) {
+        this.table = table;
+        this.keyOfRow = keyOfRow;
+        fade.setRepeats(false);
+        table.setDefaultRenderer(Object.class, this);
+        table.setDefaultRenderer(Integer.class, this);
+    }
+
+    /**
+     * Highlight the rows with these keys, replacing any earlier highlight
+     */
+    public void flash(Set<Object> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        changed.clear();
+        changed.addAll(keys);
+        fade.restart();
+        table.repaint();
+    }
+
+    private void clear() {
+        changed.clear();
+        table.repaint();
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value,
+            boolean isSelected, boolean hasFocus, int row, int column) {
+        super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+        setHorizontalAlignment(value instanceof Number ? RIGHT : LEADING);
+        if (!isSelected) {
+            Object key = keyOfRow.apply(table.convertRowIndexToModel(row));
+            setBackground(key != null && changed.contains(key) ? CHANGED : table.getBackground());
+        }
+        return this;
+    }
+}
@@ -0,0 +1,55 @@
+import java.sql.*;
+
+/**
+ * Dashboard numbers for one teacher's class: total students, present
+ * today, average marks and fees pending.
+ *
+ * The average is kept as a running sum and count so that write paths can
+ * patch it in place after saving marks instead of re-querying.
+ */
+public class ClassStats {
+
+    // All four metrics in one round trip; the class's students are selected once
+    static final String STATS_SQL =
+        "WITH s AS (SELECT student_id FROM students WHERE class_name = ? AND teacher_id = ?) " +
+        "SELECT (SELECT COUNT(*) FROM s) AS total_students, " +
+        "(SELECT COUNT(*) FROM attendance a JOIN s ON a.student_id = s.student_id " +
+        " WHERE a.attendance_date = CURRENT_DATE AND a.status = 'Present') AS present_today, " +
+        "m.marks_sum, m.marks_count, " +
+        "(SELECT COUNT(*) FROM fees f JOIN s ON f.student_id = s.student_id " +
+        " WHERE f.status = 'Pending') AS fees_pending " +
+        "FROM (SELECT COALESCE(SUM((unit1 + unit2 + midterm + final)/4.0), 0) AS marks_sum, " +
+        "      COUNT(unit1 + unit2 + midterm + final) AS marks_count " +
+        "      FROM marks m JOIN s ON m.student_id = s.student_id) m";
+
+    int totalStudents;
+    int presentToday;
+    double marksSum;
+    int marksCount;
+    int feesPending;
+
+    public static ClassStats fetch(int teacherId, String className) throws SQLException {
+        ClassStats stats = new ClassStats();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(STATS_SQL)) {
+            pstmt.setString(1, className);
+            pstmt.setInt(2, teacherId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    stats.totalStudents = rs.getInt("total_students");
+                    stats.presentToday = rs.getInt("present_today");
+                    stats.marksSum = rs.getDouble("marks_sum");
+                    stats.marksCount = rs.getInt("marks_count");
+                    stats.feesPending = rs.getInt("fees_pending");
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Average marks as a whole percentage, as shown on the dashboard card
+     */
+    public int getAverageMarks() {
+        return marksCount == 0 ? 0 : (int) (marksSum / marksCount);
+    }
+}
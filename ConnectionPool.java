@@ -0,0 +1,422 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used by DatabaseConfig.
+ *
+ * Borrowed connections are proxies: calling close() hands the physical
+ * connection back to the pool instead of closing the socket. A background
+ * housekeeper evicts idle connections, keeps the pool at its minimum size
+ * and reports (and eventually reclaims) connections that were never returned;
+ * with leak tracing on, the report includes where the connection was borrowed.
+ * Bulk work that legitimately runs longer uses a dedicated connection instead.
+ * Each physical connection keeps its own StatementCache, so repeated
+ * prepareStatement() calls with the same SQL reuse the server-side plan.
+ * Statements are handed out instrumented by QueryStats.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long abandonTimeoutMillis;
+    private final boolean traceLeaks;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Metrics
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    public ConnectionPool(String url, Properties connectionProperties, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis,
+                          long leakThresholdMillis, long abandonTimeoutMillis, boolean traceLeaks,
+                          int validationTimeoutSeconds, int statementCacheSize) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size min=" + minSize + " max=" + maxSize);
+        }
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.abandonTimeoutMillis = abandonTimeoutMillis;
+        this.traceLeaks = traceLeaks;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edutrack-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Pre-open connections up to the configured minimum size
+     */
+    public void warmUp() {
+        fillToMinimum();
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout for one to become free.
+     * The caller must close() the returned connection to give it back.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                    " ms waiting for a database connection (" + active.size() + " of " +
+                    maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            PooledConnection pc = takeIdleOrCreate();
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowSite = traceLeaks && leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pc.leakReported = false;
+            active.add(pc);
+
+            borrowCount.incrementAndGet();
+            borrowLatency.recordNanos(System.nanoTime() - start);
+            return pc.newLease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) {
+                return create();
+            }
+            if (isValid(pc)) {
+                return pc;
+            }
+            validationFailures.incrementAndGet();
+            destroy(pc);
+        }
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return !pc.raw.isClosed() && pc.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, connectionProperties);
+        createdCount.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private void release(PooledConnection pc) {
+        if (!active.remove(pc)) {
+            return; // Already reclaimed by the housekeeper
+        }
+        if (!closed && pc.resetForReuse()) {
+            pc.lastReturnedAt = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.offerFirst(pc);
+            }
+        } else {
+            destroy(pc);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection pc) {
+        destroyedCount.incrementAndGet();
+        pc.statements.clear();
+        try {
+            pc.raw.close();
+        } catch (SQLException e) {
+            // Socket is already gone; nothing left to release
+        }
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledConnection victim = null;
+            synchronized (idle) {
+                PooledConnection oldest = idle.peekLast();
+                if (oldest != null && idle.size() + active.size() > minSize
+                        && now - oldest.lastReturnedAt > idleTimeoutMillis) {
+                    victim = idle.pollLast();
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            destroy(victim);
+        }
+    }
+
+    private void detectLeaks() {
+        if (leakThresholdMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : active) {
+            long heldFor = now - pc.borrowedAt;
+            if (heldFor > leakThresholdMillis && !pc.leakReported) {
+                pc.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: connection held for " + heldFor + " ms");
+                if (pc.borrowSite != null) {
+                    pc.borrowSite.printStackTrace();
+                } else {
+                    System.err.println("Start with -Dedutrack.pool.traceLeaks=true to see where it was borrowed");
+                }
+            }
+            if (abandonTimeoutMillis > 0 && heldFor > abandonTimeoutMillis && active.remove(pc)) {
+                System.err.println("Reclaiming abandoned connection held for " + heldFor + " ms");
+                destroy(pc);
+                permits.release();
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed) {
+            synchronized (idle) {
+                if (idle.size() + active.size() >= minSize) {
+                    return;
+                }
+            }
+            try {
+                PooledConnection pc = create();
+                pc.lastReturnedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.offerLast(pc);
+                }
+            } catch (SQLException e) {
+                System.err.println("Could not open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close every idle connection and stop handing out new ones.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pc : idle) {
+                destroy(pc);
+            }
+            idle.clear();
+        }
+    }
+
+    // Metrics
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    public LatencyHistogram getBorrowLatency() {
+        return borrowLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + getActiveCount() + " idle=" + getIdleCount() + " max=" + maxSize +
+               " waiting=" + getWaitingCount() + " borrows=" + getBorrowCount() +
+               " waitMs=" + getTotalWaitMillis() + " timeouts=" + getTimeoutCount() +
+               " created=" + createdCount.get() + " destroyed=" + destroyedCount.get() +
+               " validationFailures=" + validationFailures.get() + " leaks=" + getLeakCount() +
+               " borrowLatency[" + borrowLatency + "]" +
+               " statementCache[" + StatementCache.describe() + "]";
+    }
+
+    /**
+     * One physical connection plus its pool bookkeeping
+     */
+    private final class PooledConnection {
+        final Connection raw;
+        final StatementCache statements;
+        volatile long borrowedAt;
+        volatile long lastReturnedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(raw, statementCacheSize);
+        }
+
+        Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease(this));
+        }
+
+        boolean resetForReuse() {
+            try {
+                if (raw.isClosed()) {
+                    return false;
+                }
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                raw.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Handle given to callers for the duration of one borrow
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private volatile boolean returned;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pc.raw + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && method.getParameterCount() == 1) {
+                return QueryStats.instrument(pc.statements.prepare((String) args[0]), (String) args[0]);
+            }
+            Object result;
+            try {
+                result = method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // Every statement handed out is timed; see QueryStats
+            if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                return QueryStats.instrument((PreparedStatement) result, (String) args[0]);
+            }
+            if (result instanceof Statement && method.getName().equals("createStatement")) {
+                return QueryStats.instrument((Statement) result);
+            }
+            return result;
+        }
+    }
+}
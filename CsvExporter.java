@@ -0,0 +1,169 @@
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyOut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+
+/**
+ * CSV exports of class and school data.
+ *
+ * Rows are streamed from the server with COPY ... TO STDOUT and written
+ * through a fixed-size buffer to a FileChannel, so memory use does not
+ * depend on how many rows are exported. The file is written next to the
+ * target and moved into place only when complete.
+ */
+public class CsvExporter {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int PROGRESS_EVERY_ROWS = 5000;
+
+    /**
+     * Told how far an export has got; return false to cancel it
+     */
+    public interface Listener {
+        boolean progress(long rows, long bytes);
+    }
+
+    // One teacher's class
+
+    public static String classRoster(int teacherId, String className) {
+        return "SELECT roll_no, full_name, age, father_name, phone, email, address " +
+               "FROM students WHERE class_name = " + literal(className) + " AND teacher_id = " + teacherId +
+               " ORDER BY roll_no";
+    }
+
+    public static String classAttendance(int teacherId, String className) {
+        return "SELECT a.attendance_date, s.roll_no, s.full_name, a.status " +
+               "FROM attendance a JOIN students s ON s.student_id = a.student_id " +
+               "WHERE s.class_name = " + literal(className) + " AND s.teacher_id = " + teacherId +
+               " ORDER BY a.attendance_date, s.roll_no";
+    }
+
+    public static String classMarks(int teacherId, String className) {
+        return "SELECT s.roll_no, s.full_name, m.unit1, m.unit2, m.midterm, m.final, " +
+               "m.unit1 + m.unit2 + m.midterm + m.final AS total " +
+               "FROM students s LEFT JOIN marks m ON m.student_id = s.student_id " +
+               "WHERE s.class_name = " + literal(className) + " AND s.teacher_id = " + teacherId +
+               " ORDER BY s.roll_no";
+    }
+
+    public static String classFees(int teacherId, String className) {
+        return "SELECT s.roll_no, s.full_name, f.month, f.year, f.amount, f.status, f.payment_date " +
+               "FROM fees f JOIN students s ON s.student_id = f.student_id " +
+               "WHERE s.class_name = " + literal(className) + " AND s.teacher_id = " + teacherId +
+               " ORDER BY s.roll_no, f.year, f.month";
+    }
+
+    // Whole school, for the admin
+
+    public static final String SCHOOL_TEACHERS =
+        "SELECT t.teacher_code, t.full_name, u.email, t.department, t.subject, " +
+        "array_to_string(t.classes, ', ') AS classes, t.status " +
+        "FROM teachers t LEFT JOIN users u ON u.user_id = t.user_id ORDER BY t.teacher_code";
+
+    public static final String SCHOOL_STUDENTS =
+        "SELECT s.class_name, s.roll_no, s.full_name, s.age, s.father_name, s.phone, s.email, " +
+        "t.teacher_code FROM students s LEFT JOIN teachers t ON t.teacher_id = s.teacher_id " +
+        "ORDER BY s.class_name, s.roll_no";
+
+    public static final String SCHOOL_ATTENDANCE =
+        "SELECT a.attendance_date, s.class_name, s.roll_no, s.full_name, a.status " +
+        "FROM attendance a JOIN students s ON s.student_id = a.student_id " +
+        "ORDER BY a.attendance_date, s.class_name, s.roll_no";
+
+    public static final String SCHOOL_MARKS =
+        "SELECT s.class_name, s.roll_no, s.full_name, m.unit1, m.unit2, m.midterm, m.final, " +
+        "m.unit1 + m.unit2 + m.midterm + m.final AS total " +
+        "FROM marks m JOIN students s ON s.student_id = m.student_id ORDER BY s.class_name, s.roll_no";
+
+    public static final String SCHOOL_FEES =
+        "SELECT s.class_name, s.roll_no, s.full_name, f.month, f.year, f.amount, f.status, f.payment_date " +
+        "FROM fees f JOIN students s ON s.student_id = f.student_id " +
+        "ORDER BY s.class_name, s.roll_no, f.year, f.month";
+
+    /**
+     * Stream the query's rows, with a header line, into the target file.
+     * Returns the number of rows written. Run off the EDT; the listener is
+     * called on the exporting thread.
+     */
+    public static long export(String query, Path target, Listener listener)
+            throws SQLException, IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long rows = -1; // Not counting the header line
+        long bytes = 0;
+        boolean complete = false;
+
+        // A large export outlasts the pool's leak and abandon timeouts, so it gets its own connection
+        try (Connection conn = DatabaseConfig.openDedicatedConnection();
+             FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CopyOut copy = conn.unwrap(PGConnection.class).getCopyAPI()
+                .copyOut("COPY (" + query + ") TO STDOUT WITH (FORMAT csv, HEADER true)");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try {
+                byte[] row;
+                while ((row = copy.readFromCopy()) != null) {
+                    if (row.length > buffer.remaining()) {
+                        drain(buffer, out);
+                    }
+                    if (row.length > buffer.capacity()) {
+                        ByteBuffer large = ByteBuffer.wrap(row);
+                        while (large.hasRemaining()) {
+                            out.write(large);
+                        }
+                    } else {
+                        buffer.put(row);
+                    }
+                    rows++;
+                    bytes += row.length;
+                    if (rows % PROGRESS_EVERY_ROWS == 0 && !listener.progress(rows, bytes)) {
+                        copy.cancelCopy();
+                        return Math.max(0, rows);
+                    }
+                }
+                drain(buffer, out);
+                out.force(false);
+                complete = true;
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        } finally {
+            if (complete) {
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(partial);
+            }
+        }
+
+        rows = Math.max(0, rows);
+        listener.progress(rows, bytes);
+        return rows;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * SQL string literal (standard_conforming_strings on, the default);
+     * COPY takes no bind parameters
+     */
+    static String literal(String value) {
+        if (value.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("NUL character in value");
+        }
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,269 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmarks for the data-access paths behind the screens.
+ *
+ * For each scale a SyntheticSchool is seeded in a scratch schema on the
+ * configured server and the connection pool is pointed at it. The
+ * benchmarks then run the same code the screens do: roster loads,
+ * statistics, marking a class's attendance, saving a class's marks, and
+ * teacher search. Each one is warmed up, then repeated for a fixed time
+ * with every operation timed. Results are printed and written as JSON so
+ * runs can be compared over time.
+ *
+ *   java -cp .:postgresql-42.7.8.jar DataAccessBenchmark [small] [medium] [large]
+ *
+ * -Dedutrack.bench.warmupSeconds (default 2), -Dedutrack.bench.seconds
+ * (default 5) and -Dedutrack.bench.out (default benchmark-results.json)
+ * adjust the run. Point it at a development server; the scratch schema is
+ * dropped afterwards.
+ */
+public class DataAccessBenchmark {
+
+    private static final String SCHEMA = "edutrack_bench";
+    private static final String CLASS_NAME = "10B";
+
+    private static final long WARMUP_NANOS = Long.getLong("edutrack.bench.warmupSeconds", 2) * 1_000_000_000L;
+    private static final long MEASURE_NANOS = Long.getLong("edutrack.bench.seconds", 5) * 1_000_000_000L;
+    private static final int MIN_SAMPLES = 10;
+    private static final Path OUTPUT = Paths.get(System.getProperty("edutrack.bench.out", "benchmark-results.json"));
+
+    private static final String[] SEARCHES = {"t00", "teacher 12", "subject 7", "42"};
+
+    /**
+     * How big a school to seed
+     */
+    private static final class Scale {
+        final String name;
+        final int teachers;
+        final int studentsPerClass;
+        final int days;
+
+        Scale(String name, int teachers, int studentsPerClass, int days) {
+            this.name = name;
+            this.teachers = teachers;
+            this.studentsPerClass = studentsPerClass;
+            this.days = days;
+        }
+
+        long students() {
+            return (long) teachers * SyntheticSchool.CLASSES_PER_TEACHER * studentsPerClass;
+        }
+    }
+
+    private static final Scale[] SCALES = {
+        new Scale("small", 50, 40, 20),
+        new Scale("medium", 250, 40, 20),
+        new Scale("large", 1000, 40, 20)
+    };
+
+    private interface Operation {
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * Timings of one benchmark at one scale, in nanoseconds, sorted
+     */
+    private static final class Result {
+        final Scale scale;
+        final String benchmark;
+        final long[] samples;
+        final long totalNanos;
+
+        Result(Scale scale, String benchmark, long[] samples) {
+            this.scale = scale;
+            this.benchmark = benchmark;
+            this.samples = samples;
+            Arrays.sort(samples);
+            long total = 0;
+            for (long sample : samples) {
+                total += sample;
+            }
+            this.totalNanos = total;
+        }
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(samples.length * percentile / 100.0) - 1;
+            return samples[Math.max(0, Math.min(samples.length - 1, index))] / 1e6;
+        }
+
+        double meanMillis() {
+            return totalNanos / 1e6 / samples.length;
+        }
+
+        double opsPerSecond() {
+            return samples.length / (totalNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-8s %-24s %8d ops %10.1f ops/s  mean %8.3f  p50 %8.3f  " +
+                "p90 %8.3f  p99 %8.3f  max %8.3f ms", scale.name, benchmark, samples.length, opsPerSecond(),
+                meanMillis(), percentileMillis(50), percentileMillis(90), percentileMillis(99),
+                percentileMillis(100));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Scale> scales = new ArrayList<>();
+        for (Scale scale : SCALES) {
+            if (args.length == 0 || Arrays.asList(args).contains(scale.name)) {
+                scales.add(scale);
+            }
+        }
+
+        // Every pooled connection resolves table names in the scratch schema
+        System.setProperty("edutrack.db.schema", SCHEMA);
+        String server;
+        List<Result> results = new ArrayList<>();
+        String startedAt = Instant.now().toString();
+
+        try (Connection conn = DatabaseConfig.openDedicatedConnection()) {
+            server = conn.getMetaData().getDatabaseProductVersion();
+            for (Scale scale : scales) {
+                System.out.println("Scale " + scale.name + ":");
+                try {
+                    SyntheticSchool.create(conn, SCHEMA);
+                    SyntheticSchool.seed(conn, scale.teachers, scale.studentsPerClass, scale.days);
+                    results.addAll(runAll(scale, SyntheticSchool.middleTeacherId(conn)));
+                } finally {
+                    DatabaseConfig.closeConnection();
+                    SyntheticSchool.drop(conn, SCHEMA);
+                }
+            }
+        }
+
+        writeJson(startedAt, server, results);
+        System.out.println("Results written to " + OUTPUT.toAbsolutePath());
+        System.exit(0);
+    }
+
+    private static List<Result> runAll(Scale scale, int teacherId) throws Exception {
+        List<Result> results = new ArrayList<>();
+
+        // Roster loads, as the tabs run them
+        results.add(measure(scale, "roster.students", i ->
+            StudentsTableModel.fetchIndex(teacherId, CLASS_NAME)));
+        results.add(measure(scale, "roster.attendance", i ->
+            TeacherFrame.fetchAttendance(teacherId, CLASS_NAME, null)));
+        results.add(measure(scale, "roster.marks", i ->
+            TeacherFrame.fetchMarks(teacherId, CLASS_NAME, null)));
+        results.add(measure(scale, "roster.fees", i ->
+            TeacherFrame.fetchFees(teacherId, CLASS_NAME, null)));
+
+        results.add(measure(scale, "stats.class", i -> ClassStats.fetch(teacherId, CLASS_NAME)));
+        results.add(measure(scale, "stats.school", i -> SchoolStats.fetch()));
+
+        // Writes: the whole class each time, alternating values so every operation changes rows
+        List<Integer> studentIds = new ArrayList<>();
+        for (Object[] row : TeacherFrame.fetchAttendance(teacherId, CLASS_NAME, null)) {
+            studentIds.add((Integer) row[row.length - 1]);
+        }
+
+        AttendanceWriteQueue queue = new AttendanceWriteQueue(teacherId, new AsyncLoader(),
+            Integer.MAX_VALUE, (saved, failed) -> { });
+        results.add(measure(scale, "attendance.markClass", i -> {
+            String status = i % 2 == 0 ? "Absent" : "Present";
+            String shown = i % 2 == 0 ? "Present" : "Absent";
+            for (int studentId : studentIds) {
+                queue.mark(CLASS_NAME, studentId, status, shown);
+            }
+            queue.flushAndWait();
+        }));
+
+        results.add(measure(scale, "marks.saveAll", i -> {
+            List<MarksBatchWriter.MarkRow> rows = new ArrayList<>();
+            for (int r = 0; r < studentIds.size(); r++) {
+                int base = 40 + (i + r) % 60;
+                rows.add(new MarksBatchWriter.MarkRow(studentIds.get(r), base, base + 1, base - 1, base));
+            }
+            MarksBatchWriter.saveAll(teacherId, CLASS_NAME, rows);
+        }));
+
+        // Teacher search: in the database while the directory loads, then in memory
+        results.add(measure(scale, "search.database", i -> {
+            String pattern = "%" + SEARCHES[i % SEARCHES.length] + "%";
+            AdminFrame.fetchTeachers(AdminFrame.SEARCH_TEXT, List.of(pattern, pattern, pattern));
+        }));
+        results.add(measure(scale, "search.loadDirectory", i ->
+            new TeacherDirectory(AdminFrame.fetchTeachers(AdminFrame.SEARCH_ALL, List.of()))));
+        TeacherDirectory directory = new TeacherDirectory(AdminFrame.fetchTeachers(AdminFrame.SEARCH_ALL, List.of()));
+        results.add(measure(scale, "search.directory", i ->
+            directory.filter(SEARCHES[i % SEARCHES.length], null)));
+
+        return results;
+    }
+
+    private static Result measure(Scale scale, String benchmark, Operation op) throws Exception {
+        int iteration = 0;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        do {
+            op.run(iteration++);
+        } while (System.nanoTime() < warmupEnd);
+
+        long[] samples = new long[1024];
+        int n = 0;
+        long end = System.nanoTime() + MEASURE_NANOS;
+        do {
+            long start = System.nanoTime();
+            op.run(iteration++);
+            long elapsed = System.nanoTime() - start;
+            if (n == samples.length) {
+                samples = Arrays.copyOf(samples, n * 2);
+            }
+            samples[n++] = elapsed;
+        } while (n < MIN_SAMPLES || System.nanoTime() < end);
+
+        Result result = new Result(scale, benchmark, Arrays.copyOf(samples, n));
+        System.out.println(result);
+        return result;
+    }
+
+    private static void writeJson(String startedAt, String server, List<Result> results) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"startedAt\": ").append(quote(startedAt)).append(",\n");
+        json.append("  \"java\": ").append(quote(System.getProperty("java.version"))).append(",\n");
+        json.append("  \"server\": ").append(quote(server)).append(",\n");
+        json.append("  \"warmupSeconds\": ").append(WARMUP_NANOS / 1_000_000_000L).append(",\n");
+        json.append("  \"seconds\": ").append(MEASURE_NANOS / 1_000_000_000L).append(",\n");
+        json.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append(String.format(Locale.ROOT,
+                "    {\"scale\": %s, \"teachers\": %d, \"students\": %d, \"benchmark\": %s, \"ops\": %d, " +
+                "\"opsPerSecond\": %.2f, \"meanMs\": %.4f, \"p50Ms\": %.4f, \"p90Ms\": %.4f, " +
+                "\"p99Ms\": %.4f, \"maxMs\": %.4f}",
+                quote(r.scale.name), r.scale.teachers, r.scale.students(), quote(r.benchmark),
+                r.samples.length, r.opsPerSecond(), r.meanMillis(), r.percentileMillis(50),
+                r.percentileMillis(90), r.percentileMillis(99), r.percentileMillis(100)));
+        }
+        json.append("\n  ]\n}\n");
+        Files.write(OUTPUT, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -1,6 +1,7 @@
-
-
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.*;
+import java.util.Properties;
 
 /**
  * Database Configuration and Connection Manager for EduTrack
@@ -12,40 +13,114 @@ public class DatabaseConfig {
     private static final String DB_USER = "postgres";
     private static final String DB_PASSWORD = "1234";
     
+    // Connection pool settings - override with -Dedutrack.pool.<name>=<value>
+    private static final int POOL_MIN_SIZE = Integer.getInteger("edutrack.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("edutrack.pool.maxSize", 10);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("edutrack.pool.borrowTimeoutMs", 10_000);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("edutrack.pool.idleTimeoutMs", 300_000);
+    private static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("edutrack.pool.leakThresholdMs", 30_000);
+    private static final long POOL_ABANDON_TIMEOUT_MS = Long.getLong("edutrack.pool.abandonTimeoutMs", 300_000);
+    // Record where each connection was borrowed, printed with leak warnings; costs a stack trace per borrow
+    private static final boolean POOL_TRACE_LEAKS = Boolean.getBoolean("edutrack.pool.traceLeaks");
+    private static final int POOL_VALIDATION_TIMEOUT_S = Integer.getInteger("edutrack.pool.validationTimeoutS", 2);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("edutrack.pool.statementCacheSize", 64);
+    
+    // Slow-query log - statements over the threshold are logged with their plan; a negative threshold turns it off
+    private static final long SLOW_QUERY_THRESHOLD_MS = Long.getLong("edutrack.db.slowQueryMs", 250);
+    private static final String SLOW_QUERY_LOG_FILE =
+        System.getProperty("edutrack.db.slowQueryLog", "logs/slow-queries.log");
+    private static final long SLOW_QUERY_LOG_MAX_BYTES = Long.getLong("edutrack.db.slowQueryLogMaxBytes", 1_048_576);
+    private static final int SLOW_QUERY_LOG_FILES = Integer.getInteger("edutrack.db.slowQueryLogFiles", 5);
+    
+    // Tags this client's sessions (application_name) so it can tell its own change notifications apart
+    private static final String CLIENT_ID =
+        "edutrack-" + Long.toHexString(new java.security.SecureRandom().nextLong() & Long.MAX_VALUE);
+    
     // Connection pool
-    private static Connection connection = null;
+    private static ConnectionPool pool = null;
+    
+    private static final SlowQueryLog SLOW_QUERY_LOG = SLOW_QUERY_THRESHOLD_MS < 0 ? null
+        : new SlowQueryLog(SLOW_QUERY_THRESHOLD_MS, java.nio.file.Paths.get(SLOW_QUERY_LOG_FILE),
+                           SLOW_QUERY_LOG_MAX_BYTES, Math.max(1, SLOW_QUERY_LOG_FILES));
     
     /**
-     * Get database connection
+     * Get the shared connection pool, creating it on first use
      */
-    public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                // Load PostgreSQL JDBC Driver
-                Class.forName("org.postgresql.Driver");
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                System.out.println("Database connected successfully!");
-            } catch (ClassNotFoundException e) {
-                System.err.println("PostgreSQL JDBC Driver not found!");
-                e.printStackTrace();
-                throw new SQLException("Driver not found", e);
-            }
+    public static synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            pool = new ConnectionPool(DB_URL, connectionProperties(), POOL_MIN_SIZE, POOL_MAX_SIZE,
+                POOL_BORROW_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS,
+                POOL_ABANDON_TIMEOUT_MS, POOL_TRACE_LEAKS, POOL_VALIDATION_TIMEOUT_S, STATEMENT_CACHE_SIZE);
+            pool.warmUp();
+            System.out.println("Database connection pool started (min=" + POOL_MIN_SIZE +
+                               ", max=" + POOL_MAX_SIZE + ")");
         }
-        return connection;
+        return pool;
+    }
+    
+    private static Properties connectionProperties() throws SQLException {
+        try {
+            // Load PostgreSQL JDBC Driver
+            Class.forName("org.postgresql.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("PostgreSQL JDBC Driver not found!");
+            e.printStackTrace();
+            throw new SQLException("Driver not found", e);
+        }
+        
+        Properties props = new Properties();
+        props.setProperty("user", DB_USER);
+        props.setProperty("password", DB_PASSWORD);
+        props.setProperty("ApplicationName", CLIENT_ID);
+        // -Dedutrack.db.schema resolves table names in another schema first, e.g. a benchmark's
+        String schema = System.getProperty("edutrack.db.schema");
+        if (schema != null && !schema.isEmpty()) {
+            props.setProperty("currentSchema", schema + ",public");
+        }
+        // Use a named server-side prepared statement from the first execution
+        // so cached statements skip the parse/plan step on reuse
+        props.setProperty("prepareThreshold", "1");
+        return props;
+    }
+    
+    /**
+     * Open a connection outside the pool, for long-lived sessions such as
+     * the change-notification listener or a bulk COPY. The caller owns and closes it.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(DB_URL, connectionProperties());
+    }
+    
+    /**
+     * The slow-query log, or null when it is turned off
+     */
+    public static SlowQueryLog getSlowQueryLog() {
+        return SLOW_QUERY_LOG;
     }
     
     /**
-     * Close database connection
+     * application_name of this client's database sessions
      */
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Database connection closed.");
-            } catch (SQLException e) {
-                System.err.println("Error closing database connection!");
-                e.printStackTrace();
-            }
+    public static String getClientId() {
+        return CLIENT_ID;
+    }
+    
+    /**
+     * Borrow a database connection from the pool.
+     * Callers must close() it to hand it back.
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+    
+    /**
+     * Shut down the connection pool
+     */
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            System.out.println("Database connection pool closed.");
         }
     }
     
@@ -53,8 +128,7 @@ public class DatabaseConfig {
      * Test database connection
      */
     public static boolean testConnection() {
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
             System.err.println("Database connection test failed!");
@@ -64,29 +138,70 @@ public class DatabaseConfig {
     }
     
     /**
-     * Execute a query and return ResultSet
+     * Execute a query and return ResultSet.
+     * Closing the ResultSet returns its connection to the pool.
      */
     public static ResultSet executeQuery(String query) throws SQLException {
         Connection conn = getConnection();
-        Statement stmt = conn.createStatement();
-        return stmt.executeQuery(query);
+        try {
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery(query);
+            return closingWith(ResultSet.class, rs, stmt, conn);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
     }
     
     /**
      * Execute an update query (INSERT, UPDATE, DELETE)
      */
     public static int executeUpdate(String query) throws SQLException {
-        Connection conn = getConnection();
-        Statement stmt = conn.createStatement();
-        return stmt.executeUpdate(query);
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(query);
+        }
     }
     
     /**
-     * Create prepared statement
+     * Create prepared statement.
+     * Closing the statement returns its connection to the pool.
      */
     public static PreparedStatement prepareStatement(String query) throws SQLException {
         Connection conn = getConnection();
-        return conn.prepareStatement(query);
+        try {
+            return closingWith(PreparedStatement.class, conn.prepareStatement(query), conn);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Wrap a JDBC resource so that closing it also closes the given owners, in order
+     */
+    private static <T extends AutoCloseable> T closingWith(Class<T> type, T target,
+                                                           AutoCloseable... owners) {
+        Object proxy = Proxy.newProxyInstance(DatabaseConfig.class.getClassLoader(),
+            new Class<?>[]{type},
+            (self, method, args) -> {
+                if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                    try {
+                        target.close();
+                    } finally {
+                        for (AutoCloseable owner : owners) {
+                            owner.close();
+                        }
+                    }
+                    return null;
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        return type.cast(proxy);
     }
     
     /**
@@ -104,6 +219,7 @@ public class DatabaseConfig {
     public static void main(String[] args) {
         if (DatabaseConfig.testConnection()) {
             System.out.println("✅ Connection test successful!");
+            System.out.println("Pool: " + pool);
         } else {
             System.out.println("❌ Connection test failed!");
         }
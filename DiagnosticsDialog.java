@@ -0,0 +1,156 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Live view of QueryStats, the connection pool and the caches, opened from
+ * the AdminFrame header. Refreshes every two seconds while open; the same
+ * numbers can be saved as a plain-text report.
+ */
+public class DiagnosticsDialog extends JDialog {
+
+    private static final String[] COLUMNS = {
+        "Call site", "Calls", "Errors", "Rows/call", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms",
+        "SQL", "Last error"
+    };
+
+    private final DefaultTableModel queriesModel = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+
+        // Numeric columns sort as numbers
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 || column == 2 ? Long.class
+                 : column >= 3 && column <= 8 ? Double.class
+                 : String.class;
+        }
+    };
+    private final JTextArea summaryArea = new JTextArea(5, 80);
+    private final Timer refreshTimer = new Timer(2000, e -> refresh());
+
+    public DiagnosticsDialog(Frame owner) {
+        super(owner, "Diagnostics", false);
+        setSize(1100, 600);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JTable queriesTable = new JTable(queriesModel);
+        queriesTable.setAutoCreateRowSorter(true);
+        queriesTable.getColumnModel().getColumn(0).setPreferredWidth(220);
+        queriesTable.getColumnModel().getColumn(9).setPreferredWidth(400);
+        queriesTable.getColumnModel().getColumn(10).setPreferredWidth(250);
+
+        summaryArea.setEditable(false);
+        summaryArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            QueryStats.reset();
+            refresh();
+        });
+        JButton exportButton = new JButton("Export…");
+        exportButton.addActionListener(e -> export());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(refreshButton);
+        buttons.add(resetButton);
+        buttons.add(exportButton);
+        buttons.add(closeButton);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(new JScrollPane(summaryArea), BorderLayout.NORTH);
+        panel.add(new JScrollPane(queriesTable), BorderLayout.CENTER);
+        panel.add(buttons, BorderLayout.SOUTH);
+        add(panel);
+
+        refresh();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+
+    private void refresh() {
+        summaryArea.setText(summary());
+
+        queriesModel.setRowCount(0);
+        for (QueryStats.Entry entry : QueryStats.snapshot()) {
+            LatencyHistogram latency = entry.getLatency();
+            queriesModel.addRow(new Object[]{
+                entry.getSite(),
+                latency.getCount(),
+                entry.getErrors(),
+                round(entry.getRowsPerCall()),
+                round(latency.getMeanMillis()),
+                round(latency.getPercentileMillis(50)),
+                round(latency.getPercentileMillis(95)),
+                round(latency.getPercentileMillis(99)),
+                round(latency.getMaxMillis()),
+                entry.getSql(),
+                entry.getLastError() == null ? "" : entry.getLastError()
+            });
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Diagnostics");
+        chooser.setSelectedFile(new File("edutrack-diagnostics.txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Files.write(chooser.getSelectedFile().toPath(), report().getBytes(StandardCharsets.UTF_8));
+            JOptionPane.showMessageDialog(this, "Diagnostics saved to " + chooser.getSelectedFile().getName());
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error saving diagnostics: " + e.getMessage(),
+                "Export Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Everything the dialog shows, as text
+     */
+    public static String report() {
+        return "EduTrack diagnostics, " + LocalDateTime.now() + "\n\n" + summary() + "\n\n" +
+               StartupPipeline.lastReport() + "\n" + QueryStats.report();
+    }
+
+    private static String summary() {
+        String pool;
+        try {
+            pool = DatabaseConfig.getPool().toString();
+        } catch (SQLException e) {
+            pool = "unavailable (" + e.getMessage() + ")";
+        }
+        return "Connection pool: " + pool + "\n" +
+               "Statement cache: " + StatementCache.describe() + "\n" +
+               "Slow-query log: " + (DatabaseConfig.getSlowQueryLog() == null ? "off"
+                                     : DatabaseConfig.getSlowQueryLog().toString()) + "\n" +
+               TeacherFrame.describeCaches();
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded, least-recently-used cache whose entries also expire a fixed
+ * time after they were stored. Thread-safe; counts hits and misses so the
+ * size and TTL can be tuned from real usage.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ExpiringLruCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringLruCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(ttlMillis)) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value));
+    }
+
+    /**
+     * Apply an in-place change to a cached value without resetting its age.
+     * Returns false (and changes nothing) if the key is absent or expired.
+     */
+    public synchronized boolean update(K key, Consumer<V> change) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(ttlMillis)) {
+            return false;
+        }
+        change.accept(entry.value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateIf(Predicate<K> matches) {
+        Iterator<K> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (matches.test(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public synchronized String describe() {
+        return String.format("size=%d/%d hits=%d misses=%d evictions=%d hitRate=%.1f%%",
+            entries.size(), maxEntries, hits, misses, evictions, getHitRate() * 100);
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long storedAt = System.currentTimeMillis();
+
+        Entry(V value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - storedAt > ttlMillis;
+        }
+    }
+}
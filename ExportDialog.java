@@ -0,0 +1,91 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Save-as prompt and progress window for a CsvExporter export. The export
+ * runs in the background; the window shows rows and bytes written so far
+ * and can cancel it.
+ */
+public class ExportDialog extends JDialog {
+
+    private final JLabel statusLabel = new JLabel("Starting…");
+    private volatile boolean cancelled;
+
+    private ExportDialog(Frame owner, String title) {
+        super(owner, "Exporting " + title, false);
+        setSize(360, 140);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancel();
+            }
+        });
+
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> cancel());
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        panel.add(statusLabel, BorderLayout.NORTH);
+        panel.add(bar, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelButton);
+        panel.add(buttons, BorderLayout.SOUTH);
+        add(panel);
+    }
+
+    /**
+     * Ask where to save, then export the query's rows there on the loader
+     */
+    public static void start(Frame owner, AsyncLoader loader, String title, String query,
+                             String defaultFileName) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + title);
+        chooser.setSelectedFile(new File(defaultFileName));
+        if (chooser.showSaveDialog(owner) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path target = chooser.getSelectedFile().toPath();
+
+        ExportDialog dialog = new ExportDialog(owner, title);
+        dialog.setVisible(true);
+        long start = System.nanoTime();
+
+        loader.run(() -> CsvExporter.export(query, target, dialog::progress), rows -> {
+            dialog.dispose();
+            if (dialog.cancelled) {
+                JOptionPane.showMessageDialog(owner, "Export cancelled.");
+                return;
+            }
+            JOptionPane.showMessageDialog(owner, String.format("Exported %,d row(s) to %s in %.1f s.",
+                rows, target.getFileName(), (System.nanoTime() - start) / 1e9));
+        }, e -> {
+            e.printStackTrace();
+            dialog.dispose();
+            JOptionPane.showMessageDialog(owner,
+                "Error exporting " + title + ": " + e.getMessage(),
+                "Export Error",
+                JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private boolean progress(long rows, long bytes) {
+        SwingUtilities.invokeLater(() ->
+            statusLabel.setText(String.format("%,d rows, %.1f MB written", rows, bytes / 1e6)));
+        return !cancelled;
+    }
+
+    private void cancel() {
+        cancelled = true;
+        statusLabel.setText("Cancelling…");
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Bucket i counts samples in [2^i, 2^(i+1)) microseconds, so percentiles
+ * are accurate to within a factor of two, which is plenty for spotting a
+ * query that went from 2 ms to 200 ms.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record one sample measured with System.nanoTime()
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucketFor(micros));
+        samples.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return samples.get();
+    }
+
+    public double getMeanMillis() {
+        long n = samples.get();
+        return n == 0 ? 0 : totalMicros.get() / 1000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * Upper bound, in milliseconds, of the bucket holding the given percentile (0-100)
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = samples.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min((1L << (i + 1)) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Bucket counts as "<=upper_ms:count" pairs, skipping empty buckets
+     */
+    public String describeBuckets() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append("<=").append(formatMillis((1L << (i + 1)) / 1000.0)).append("ms:").append(c);
+            }
+        }
+        return sb.length() == 0 ? "(empty)" : sb.toString();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        samples.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%sms p50=%sms p95=%sms p99=%sms max=%sms",
+            getCount(), formatMillis(getMeanMillis()), formatMillis(getPercentileMillis(50)),
+            formatMillis(getPercentileMillis(95)), formatMillis(getPercentileMillis(99)),
+            formatMillis(getMaxMillis()));
+    }
+
+    static String formatMillis(double millis) {
+        return millis < 10 ? String.format("%.2f", millis) : String.format("%.0f", millis);
+    }
+
+    private static int bucketFor(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+}
@@ -10,6 +10,12 @@ import java.sql.*;
  */
 public class LoginFrame extends JFrame {
 
+    static final String LOGIN_SQL = "SELECT user_id, role FROM users WHERE email = ? AND password = ?";
+
+    static {
+        SlowQueryLog.sensitive(LOGIN_SQL);
+    }
+
     private JTextField emailField;
     private JPasswordField passwordField;
     private JLabel statusLabel;
@@ -77,40 +83,34 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        try {
-            String query = "SELECT user_id, role FROM users WHERE email = ? AND password = ?";
-            PreparedStatement stmt = DatabaseConfig.prepareStatement(query);
+        try (PreparedStatement stmt = DatabaseConfig.prepareStatement(LOGIN_SQL)) {
             stmt.setString(1, email);
             stmt.setString(2, password);
 
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                String role = rs.getString("role");
-                int userId = rs.getInt("user_id");
-
-                statusLabel.setText("Login successful!");
-                dispose(); // Close login window
-
-                // Open dashboard based on role
-                SwingUtilities.invokeLater(() -> {
-                    if ("admin".equalsIgnoreCase(role)) {
-                        new AdminFrame().setVisible(true);
-                    } else if ("teacher".equalsIgnoreCase(role)) {
-                        // You may fetch teacher_class dynamically here if needed
-                        new TeacherFrame(userId, "Class A").setVisible(true);
-                    } else {
-                        JOptionPane.showMessageDialog(null, "Unknown user role: " + role);
-                    }
-                });
-
-            } else {
-                statusLabel.setText("Invalid email or password!");
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    String role = rs.getString("role");
+                    int userId = rs.getInt("user_id");
+
+                    statusLabel.setText("Login successful!");
+                    dispose(); // Close login window
+
+                    // Open dashboard based on role
+                    SwingUtilities.invokeLater(() -> {
+                        if ("admin".equalsIgnoreCase(role)) {
+                            new AdminFrame().setVisible(true);
+                        } else if ("teacher".equalsIgnoreCase(role)) {
+                            // You may fetch teacher_class dynamically here if needed
+                            new TeacherFrame(userId, "Class A").setVisible(true);
+                        } else {
+                            JOptionPane.showMessageDialog(null, "Unknown user role: " + role);
+                        }
+                    });
+
+                } else {
+                    statusLabel.setText("Invalid email or password!");
+                }
             }
-
-            rs.close();
-            stmt.close();
-
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -121,6 +121,24 @@ public class LoginFrame extends JFrame {
     }
 
     public static void main(String[] args) {
+        // Bring the database schema up to date before anyone signs in
+        try {
+            SchemaMigrator.migrate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(null,
+                "Database schema could not be updated: " + e.getMessage(),
+                "Startup Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+        // Load the driver and open the pool while the user types, not on the first click
+        AsyncLoader.executor().submit(() -> {
+            try {
+                DatabaseConfig.getPool();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
         SwingUtilities.invokeLater(() -> new LoginFrame().setVisible(true));
     }
 }
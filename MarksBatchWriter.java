@@ -0,0 +1,167 @@
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based marks upsert for TeacherFrame.saveAllMarks.
+ *
+ * All rows go to the server as parallel arrays in a single statement,
+ * keyed by the student IDs the grid carries (roll numbers may repeat).
+ * Only students of the teacher's class are written, so saving a class
+ * costs one round trip instead of two per student. Everything runs in a
+ * single transaction.
+ */
+public class MarksBatchWriter {
+
+    static final String UPSERT_SQL =
+        "INSERT INTO marks (student_id, unit1, unit2, midterm, final, updated_by) " +
+        "SELECT v.student_id, v.unit1, v.unit2, v.midterm, v.final, ? " +
+        "FROM unnest(?::int[], ?::int[], ?::int[], ?::int[], ?::int[]) " +
+        "AS v(student_id, unit1, unit2, midterm, final) " +
+        "WHERE EXISTS (SELECT 1 FROM students s WHERE s.student_id = v.student_id " +
+        "AND s.class_name = ? AND s.teacher_id = ?) " +
+        "ON CONFLICT (student_id) DO UPDATE SET unit1 = EXCLUDED.unit1, " +
+        "unit2 = EXCLUDED.unit2, midterm = EXCLUDED.midterm, final = EXCLUDED.final, " +
+        "updated_by = EXCLUDED.updated_by " +
+        "RETURNING student_id, (xmax = 0) AS inserted";
+
+    /**
+     * One row of the marks grid
+     */
+    public static class MarkRow {
+        final int studentId;
+        final int unit1, unit2, midterm, finalMark;
+
+        public MarkRow(int studentId, int unit1, int unit2, int midterm, int finalMark) {
+            this.studentId = studentId;
+            this.unit1 = unit1;
+            this.unit2 = unit2;
+            this.midterm = midterm;
+            this.finalMark = finalMark;
+        }
+    }
+
+    /**
+     * Outcome of a save: how many rows were written and why the others
+     * were not, by student ID
+     */
+    public static class Result {
+        int saved;
+        final Set<Integer> inserted = new HashSet<>();
+        final Map<Integer, String> failures = new LinkedHashMap<>();
+
+        public int getSaved() {
+            return saved;
+        }
+
+        /**
+         * Students who had no marks row before this save
+         */
+        public Set<Integer> getInserted() {
+            return inserted;
+        }
+
+        public Map<Integer, String> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * Upsert every row in one statement. If the statement fails as a whole
+     * (e.g. a constraint violation on one row), retry row by row under
+     * savepoints so the good rows are still saved and the bad ones reported.
+     */
+    public static Result saveAll(int teacherId, String className, List<MarkRow> rows) throws SQLException {
+        Result result = new Result();
+        if (rows.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Savepoint start = conn.setSavepoint();
+                try {
+                    recordSaved(result, rows, upsert(conn, teacherId, className, rows));
+                } catch (SQLException batchFailure) {
+                    conn.rollback(start);
+                    saveRowByRow(conn, teacherId, className, rows, result);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    private static void saveRowByRow(Connection conn, int teacherId, String className,
+                                     List<MarkRow> rows, Result result) throws SQLException {
+        for (MarkRow row : rows) {
+            Savepoint sp = conn.setSavepoint();
+            try {
+                recordSaved(result, List.of(row), upsert(conn, teacherId, className, List.of(row)));
+                conn.releaseSavepoint(sp);
+            } catch (SQLException e) {
+                conn.rollback(sp);
+                result.failures.put(row.studentId, e.getMessage());
+            }
+        }
+    }
+
+    private static Map<Integer, Boolean> upsert(Connection conn, int teacherId, String className,
+                                       List<MarkRow> rows) throws SQLException {
+        int n = rows.size();
+        Integer[] studentIds = new Integer[n];
+        Integer[] unit1 = new Integer[n];
+        Integer[] unit2 = new Integer[n];
+        Integer[] midterm = new Integer[n];
+        Integer[] finalMark = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            MarkRow row = rows.get(i);
+            studentIds[i] = row.studentId;
+            unit1[i] = row.unit1;
+            unit2[i] = row.unit2;
+            midterm[i] = row.midterm;
+            finalMark[i] = row.finalMark;
+        }
+
+        Map<Integer, Boolean> written = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            pstmt.setInt(1, teacherId);
+            pstmt.setArray(2, conn.createArrayOf("integer", studentIds));
+            pstmt.setArray(3, conn.createArrayOf("integer", unit1));
+            pstmt.setArray(4, conn.createArrayOf("integer", unit2));
+            pstmt.setArray(5, conn.createArrayOf("integer", midterm));
+            pstmt.setArray(6, conn.createArrayOf("integer", finalMark));
+            pstmt.setString(7, className);
+            pstmt.setInt(8, teacherId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    written.put(rs.getInt("student_id"), rs.getBoolean("inserted"));
+                }
+            }
+        }
+        return written;
+    }
+
+    private static void recordSaved(Result result, List<MarkRow> rows, Map<Integer, Boolean> written) {
+        for (MarkRow row : rows) {
+            Boolean inserted = written.get(row.studentId);
+            if (inserted != null) {
+                result.saved++;
+                if (inserted) {
+                    result.inserted.add(row.studentId);
+                }
+            } else {
+                result.failures.put(row.studentId, "Student not found in this class");
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table model for the marks grid.
+ *
+ * Remembers the marks each row had when it was loaded, so it knows which
+ * rows the teacher actually changed, and recomputes the Total and Grade
+ * columns locally as soon as a mark is edited. The last column holds the
+ * student ID; the table does not show it.
+ */
+public class MarksTableModel extends DefaultTableModel {
+
+    static final String[] COLUMNS = {"Roll No", "Name", "Unit 1", "Unit 2", "Mid Term", "Final", "Total", "Grade", "ID"};
+    static final int FIRST_MARK_COLUMN = 2;
+    static final int LAST_MARK_COLUMN = 5;
+    static final int TOTAL_COLUMN = 6;
+    static final int GRADE_COLUMN = 7;
+    static final int ID_COLUMN = 8;
+
+    private final List<Object[]> original = new ArrayList<>();
+    private final BitSet dirtyRows = new BitSet();
+
+    public MarksTableModel() {
+        super(COLUMNS, 0);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column >= FIRST_MARK_COLUMN && column <= LAST_MARK_COLUMN; // Mark columns editable
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return isCellEditable(0, column) ? Integer.class : Object.class;
+    }
+
+    /**
+     * Replace the grid contents with freshly loaded rows; nothing is dirty afterwards
+     */
+    public void loadRows(List<Object[]> rows) {
+        setRowCount(0);
+        original.clear();
+        dirtyRows.clear();
+        for (Object[] row : rows) {
+            addRow(row);
+            original.add(snapshotMarks(row));
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        super.setValueAt(value, row, column);
+        if (column < FIRST_MARK_COLUMN || column > LAST_MARK_COLUMN || row >= original.size()) {
+            return;
+        }
+
+        recomputeTotal(row);
+        dirtyRows.set(row, differsFromOriginal(row));
+    }
+
+    private boolean differsFromOriginal(int row) {
+        Object[] before = original.get(row);
+        for (int c = FIRST_MARK_COLUMN; c <= LAST_MARK_COLUMN; c++) {
+            if (!String.valueOf(before[c - FIRST_MARK_COLUMN]).equals(String.valueOf(getValueAt(row, c)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recomputeTotal(int row) {
+        try {
+            int total = 0;
+            for (int c = FIRST_MARK_COLUMN; c <= LAST_MARK_COLUMN; c++) {
+                total += Integer.parseInt(String.valueOf(getValueAt(row, c)).trim());
+            }
+            super.setValueAt(total + "/400", row, TOTAL_COLUMN);
+            super.setValueAt(calculateGrade((int) (total / 4.0)), row, GRADE_COLUMN);
+        } catch (NumberFormatException e) {
+            super.setValueAt("-", row, TOTAL_COLUMN);
+            super.setValueAt("-", row, GRADE_COLUMN);
+        }
+    }
+
+    /**
+     * Rows edited since the last load or save, in ascending order
+     */
+    public int[] getDirtyRows() {
+        return dirtyRows.stream().toArray();
+    }
+
+    public boolean hasChanges() {
+        return !dirtyRows.isEmpty();
+    }
+
+    /**
+     * Record that these marks are now in the database. A row stays dirty
+     * if it was edited again while the save was in flight.
+     */
+    public void markSaved(List<MarksBatchWriter.MarkRow> saved) {
+        Map<Object, MarksBatchWriter.MarkRow> byStudent = new HashMap<>();
+        for (MarksBatchWriter.MarkRow mark : saved) {
+            byStudent.put(mark.studentId, mark);
+        }
+        for (int row = 0; row < getRowCount() && row < original.size(); row++) {
+            MarksBatchWriter.MarkRow mark = byStudent.get(getValueAt(row, ID_COLUMN));
+            if (mark != null) {
+                original.set(row, new Object[]{mark.unit1, mark.unit2, mark.midterm, mark.finalMark});
+                dirtyRows.set(row, differsFromOriginal(row));
+            }
+        }
+    }
+
+    /**
+     * Apply rows changed by someone else, leaving rows with unsaved edits
+     * alone. Returns false if a row is not in the grid (reload instead).
+     */
+    public boolean refreshRows(List<Object[]> rows) {
+        for (Object[] fresh : rows) {
+            int row = indexOf(fresh[ID_COLUMN]);
+            if (row < 0) {
+                return false;
+            }
+            if (dirtyRows.get(row)) {
+                continue;
+            }
+            for (int c = 0; c < fresh.length; c++) {
+                super.setValueAt(fresh[c], row, c);
+            }
+            original.set(row, snapshotMarks(fresh));
+        }
+        return true;
+    }
+
+    private int indexOf(Object studentId) {
+        for (int row = 0; row < getRowCount(); row++) {
+            if (studentId.equals(getValueAt(row, ID_COLUMN))) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks of a row as last loaded or saved: Unit 1, Unit 2, Mid Term, Final
+     */
+    public Object[] getOriginalMarks(int row) {
+        return original.get(row).clone();
+    }
+
+    private static Object[] snapshotMarks(Object[] row) {
+        Object[] marks = new Object[LAST_MARK_COLUMN - FIRST_MARK_COLUMN + 1];
+        System.arraycopy(row, FIRST_MARK_COLUMN, marks, 0, marks.length);
+        return marks;
+    }
+
+    static String calculateGrade(int marks) {
+        if (marks >= 90) return "A+";
+        if (marks >= 80) return "A";
+        if (marks >= 70) return "B+";
+        if (marks >= 60) return "B";
+        if (marks >= 50) return "C";
+        return "F";
+    }
+}
@@ -0,0 +1,218 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that the screens' SQL is served by indexes.
+ *
+ * Builds the schema from sql/migrations in a scratch schema, seeds it with
+ * a large SyntheticSchool, and runs EXPLAIN on every statement LoginFrame,
+ * AdminFrame and TeacherFrame issue (including the ones they delegate to).
+ * Any plan that sequentially scans a large table is reported with its plan.
+ * The scratch schema is dropped afterwards; the application's own tables
+ * are not touched.
+ *
+ *   java -cp .:postgresql-42.7.8.jar QueryPlanCheck [teachers] [students per class] [days]
+ *
+ * Exits with status 1 if any statement falls back to a sequential scan.
+ */
+public class QueryPlanCheck {
+
+    private static final String SCHEMA = "edutrack_plan_check";
+
+    // Sequential scans of tables smaller than this are the planner's right call
+    private static final long LARGE_TABLE_ROWS = 2000;
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    /**
+     * One statement to explain, with values for its parameters
+     */
+    private static final class Check {
+        final String name;
+        final String sql;
+        final Object[] params;
+        final boolean readsWholeTable;
+
+        Check(String name, String sql, boolean readsWholeTable, Object... params) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+            this.readsWholeTable = readsWholeTable;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int teachers = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int studentsPerClass = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        int failures;
+        try (Connection conn = DatabaseConfig.openDedicatedConnection()) {
+            try {
+                SyntheticSchool.create(conn, SCHEMA);
+                SyntheticSchool.seed(conn, teachers, studentsPerClass, days);
+                failures = explainAll(conn, checks(conn));
+            } finally {
+                SyntheticSchool.drop(conn, SCHEMA);
+            }
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static List<Check> checks(Connection conn) throws SQLException {
+        // A typical teacher, one of their classes and some of its students
+        int teacherId = SyntheticSchool.middleTeacherId(conn);
+        String email;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT u.email FROM teachers t JOIN users u ON u.user_id = t.user_id WHERE t.teacher_id = ?")) {
+            pstmt.setInt(1, teacherId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                email = rs.getString("email");
+            }
+        }
+        String className = "10B";
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT student_id FROM students WHERE teacher_id = ? AND class_name = ? ORDER BY roll_no LIMIT 5")) {
+            pstmt.setInt(1, teacherId);
+            pstmt.setString(2, className);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        Integer[] studentIds = ids.toArray(new Integer[0]);
+        Date today = new Date(System.currentTimeMillis());
+
+        List<Check> checks = new ArrayList<>();
+        checks.add(new Check("LoginFrame.LOGIN_SQL", LoginFrame.LOGIN_SQL, false, email, SyntheticSchool.PASSWORD));
+
+        checks.add(new Check("AdminFrame.SEARCH_ALL", AdminFrame.SEARCH_ALL, true));
+        checks.add(new Check("AdminFrame.SEARCH_TEXT", AdminFrame.SEARCH_TEXT, false,
+            "%t02001%", "%t02001%", "%t02001%"));
+        checks.add(new Check("AdminFrame.SEARCH_DEPT", AdminFrame.SEARCH_DEPT, false, "Department 7"));
+        checks.add(new Check("AdminFrame.SEARCH_TEXT_DEPT", AdminFrame.SEARCH_TEXT_DEPT, false,
+            "%teacher 201%", "%teacher 201%", "%teacher 201%", "Department 7"));
+        checks.add(new Check("AdminFrame.TEACHER_BY_ID", AdminFrame.TEACHER_BY_ID, false, teacherId));
+        checks.add(new Check("AdminFrame.ADD_USER_SQL", AdminFrame.ADD_USER_SQL, false,
+            "new@plancheck.invalid", "secret"));
+        checks.add(new Check("AdminFrame.NEXT_TEACHER_CODE_SQL", AdminFrame.NEXT_TEACHER_CODE_SQL, true));
+        checks.add(new Check("AdminFrame.ADD_TEACHER_SQL", AdminFrame.ADD_TEACHER_SQL, false,
+            1, "T99999", "New Teacher", "Department 1", "Subject 1", new String[]{"10A"}));
+        checks.add(new Check("SchoolStats.ROLLUP_SQL", SchoolStats.ROLLUP_SQL, false));
+        checks.add(new Check("SchoolReport.DEPARTMENTS_SQL", SchoolReport.DEPARTMENTS_SQL, false));
+        checks.add(new Check("SchoolReport.classesSql", SchoolReport.classesSql("t.department = ?"), false,
+            today, today, today, today, "Department 7"));
+
+        checks.add(new Check("TeacherFrame.TEACHER_INFO_SQL", TeacherFrame.TEACHER_INFO_SQL, false, teacherId));
+        for (String[] tab : new String[][]{
+                {"ATTENDANCE_SQL", TeacherFrame.ATTENDANCE_SQL},
+                {"MARKS_SQL", TeacherFrame.MARKS_SQL},
+                {"FEES_SQL", TeacherFrame.FEES_SQL}}) {
+            checks.add(new Check("TeacherFrame." + tab[0], tab[1], false, className, teacherId));
+            checks.add(new Check("TeacherFrame." + tab[0] + " (some students)",
+                TeacherFrame.onlyStudents(tab[1]), false, className, teacherId, studentIds));
+        }
+        checks.add(new Check("TeacherFrame.MATERIALS_SQL", TeacherFrame.MATERIALS_SQL, false, teacherId, className));
+        checks.add(new Check("TeacherFrame.ADD_STUDENT_SQL", TeacherFrame.ADD_STUDENT_SQL, false,
+            "999", "New Student", 12, className, "Parent", "555-0100", "new@plancheck.invalid", "Street", teacherId));
+        checks.add(new Check("TeacherFrame.FEE_STATUS_SQL", TeacherFrame.FEE_STATUS_SQL, false,
+            studentIds[0], "Paid", today, "Paid", today));
+        checks.add(new Check("TeacherFrame.ADD_MATERIAL_SQL", TeacherFrame.ADD_MATERIAL_SQL, false,
+            teacherId, "Notes", "Chapter 1", "notes", className));
+        checks.add(new Check("TeacherFrame.DELETE_MATERIAL_SQL", TeacherFrame.DELETE_MATERIAL_SQL, false, 1));
+
+        checks.add(new Check("StudentsTableModel.INDEX_SQL", StudentsTableModel.INDEX_SQL, false,
+            className, teacherId, 100));
+        checks.add(new Check("StudentsTableModel.PAGE_SQL", StudentsTableModel.PAGE_SQL, false,
+            className, teacherId, "001", 0, 100));
+        checks.add(new Check("ClassStats.STATS_SQL", ClassStats.STATS_SQL, false, className, teacherId));
+        checks.add(new Check("AttendanceWriteQueue.UPSERT_SQL", AttendanceWriteQueue.UPSERT_SQL, false,
+            teacherId, studentIds, new String[]{"Present"}));
+        checks.add(new Check("MarksBatchWriter.UPSERT_SQL", MarksBatchWriter.UPSERT_SQL, false,
+            teacherId, studentIds, studentIds, studentIds, studentIds, studentIds, className, teacherId));
+        checks.add(new Check("CsvExporter.classRoster", CsvExporter.classRoster(teacherId, className), false));
+        checks.add(new Check("CsvExporter.classAttendance", CsvExporter.classAttendance(teacherId, className), false));
+        checks.add(new Check("CsvExporter.classMarks", CsvExporter.classMarks(teacherId, className), false));
+        checks.add(new Check("CsvExporter.classFees", CsvExporter.classFees(teacherId, className), false));
+        return checks;
+    }
+
+    private static int explainAll(Connection conn, List<Check> checks) throws SQLException {
+        Map<String, Long> tableRows = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT c.relname, c.reltuples::bigint AS reltuples FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND c.relkind = 'r'")) {
+            pstmt.setString(1, SCHEMA);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tableRows.put(rs.getString("relname"), rs.getLong("reltuples"));
+                }
+            }
+        }
+
+        int failures = 0;
+        for (Check check : checks) {
+            String plan = explain(conn, check);
+            List<String> scans = new ArrayList<>();
+            Matcher m = SEQ_SCAN.matcher(plan);
+            while (m.find()) {
+                long rows = tableRows.getOrDefault(m.group(1), 0L);
+                if (rows >= LARGE_TABLE_ROWS) {
+                    scans.add(String.format("%s (%,d rows)", m.group(1), rows));
+                }
+            }
+
+            if (scans.isEmpty()) {
+                System.out.println("ok    " + check.name);
+            } else if (check.readsWholeTable) {
+                System.out.println("full  " + check.name + " - reads the whole table by design");
+            } else {
+                failures++;
+                System.out.println("SCAN  " + check.name + " - sequential scan of " + String.join(", ", scans));
+                System.out.println(plan.replaceAll("(?m)^", "        "));
+            }
+        }
+        System.out.println(failures == 0 ? "All statements use indexes."
+                                         : failures + " statement(s) fall back to a sequential scan.");
+        return failures;
+    }
+
+    private static String explain(Connection conn, Check check) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + check.sql)) {
+            for (int i = 0; i < check.params.length; i++) {
+                Object value = check.params[i];
+                if (value instanceof Object[]) {
+                    value = conn.createArrayOf(arrayType((Object[]) value), (Object[]) value);
+                }
+                pstmt.setObject(i + 1, value);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException(check.name + ": " + e.getMessage(), e.getSQLState(), e);
+        }
+        return plan.toString();
+    }
+
+    private static String arrayType(Object[] values) {
+        if (values instanceof Integer[]) {
+            return "integer";
+        }
+        if (values instanceof Date[]) {
+            return "date";
+        }
+        return "text";
+    }
+}
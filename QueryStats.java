@@ -0,0 +1,280 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timing, row counts and errors for every statement run on a pooled
+ * connection, grouped by call site and SQL.
+ *
+ * ConnectionPool hands out statements wrapped by instrument(). Each
+ * execution records its latency in a LatencyHistogram; rows read (or
+ * updated) and failures are counted alongside. The call site is the first
+ * frame outside the database plumbing, e.g. TeacherFrame.fetchFees, taken
+ * when the statement is prepared. -Dedutrack.queryStats=false turns it off.
+ *
+ * Executions over the slow-query threshold are also passed, with their
+ * bind parameters, to DatabaseConfig's SlowQueryLog, which decides how
+ * much of them it may write.
+ */
+public class QueryStats {
+
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("edutrack.queryStats", "true"));
+
+    // Frames from these classes are plumbing, not call sites
+    private static final Set<String> PLUMBING = Set.of(
+        "QueryStats", "ConnectionPool", "StatementCache", "DatabaseConfig");
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    /**
+     * Everything recorded for one SQL string at one call site
+     */
+    public static final class Entry {
+        final String site;
+        final String sql;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        volatile String lastError;
+
+        Entry(String site, String sql) {
+            this.site = site;
+            this.sql = sql;
+        }
+
+        public String getSite() {
+            return site;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        /**
+         * Rows per execution, averaged
+         */
+        public double getRowsPerCall() {
+            long calls = latency.getCount();
+            return calls == 0 ? 0 : (double) rows.get() / calls;
+        }
+    }
+
+    /**
+     * Wrap a prepared statement so its executions are recorded against the caller
+     */
+    static PreparedStatement instrument(PreparedStatement ps, String sql) {
+        if (!ENABLED) {
+            return ps;
+        }
+        return wrap(PreparedStatement.class, ps, entry(callSite(), sql));
+    }
+
+    /**
+     * Wrap a plain statement; its SQL is only known per execution
+     */
+    static Statement instrument(Statement stmt) {
+        if (!ENABLED) {
+            return stmt;
+        }
+        return wrap(Statement.class, stmt, null);
+    }
+
+    /**
+     * Entries with the most total time first
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>(ENTRIES.values());
+        entries.sort(Comparator.comparingDouble(
+            (Entry e) -> e.latency.getMeanMillis() * e.latency.getCount()).reversed());
+        return entries;
+    }
+
+    public static void reset() {
+        ENTRIES.clear();
+    }
+
+    /**
+     * Plain-text table of every entry, for logs and exported reports
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-40s %7s %6s %9s %9s %9s %9s %9s  %s%n",
+            "Call site", "Calls", "Errors", "Rows/call", "p50 ms", "p95 ms", "p99 ms", "Max ms", "SQL"));
+        for (Entry e : snapshot()) {
+            LatencyHistogram h = e.latency;
+            sb.append(String.format("%-40s %7d %6d %9.1f %9s %9s %9s %9s  %s%n",
+                e.site, h.getCount(), e.errors.get(), e.getRowsPerCall(),
+                LatencyHistogram.formatMillis(h.getPercentileMillis(50)),
+                LatencyHistogram.formatMillis(h.getPercentileMillis(95)),
+                LatencyHistogram.formatMillis(h.getPercentileMillis(99)),
+                LatencyHistogram.formatMillis(h.getMaxMillis()), e.sql));
+            if (e.lastError != null) {
+                sb.append(String.format("%-40s last error: %s%n", "", e.lastError));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Entry entry(String site, String sql) {
+        return ENTRIES.computeIfAbsent(site + "\0" + sql, k -> new Entry(site, sql));
+    }
+
+    /**
+     * Class.method of the first caller outside the database plumbing, with
+     * lambda names reduced to the method they were written in
+     */
+    static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(f -> !isPlumbing(f.getClassName()))
+            .findFirst()
+            .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()))
+            .orElse("unknown"));
+    }
+
+    private static boolean isPlumbing(String className) {
+        return PLUMBING.contains(simpleName(className))
+            || className.startsWith("java.") || className.startsWith("javax.")
+            || className.startsWith("jdk.") || className.startsWith("sun.")
+            || className.startsWith("com.sun.proxy.") || className.startsWith("org.postgresql.");
+    }
+
+    private static String simpleName(String className) {
+        int dollar = className.indexOf('$');
+        return dollar < 0 ? className : className.substring(0, dollar);
+    }
+
+    // lambda$loadFees$12 -> loadFees
+    private static String methodName(String name) {
+        if (name.startsWith("lambda$")) {
+            int end = name.indexOf('$', 7);
+            return end < 0 ? name.substring(7) : name.substring(7, end);
+        }
+        return name;
+    }
+
+    private static <T extends Statement> T wrap(Class<T> type, T target, Entry prepared) {
+        Entry[] last = {prepared};
+        // Values bound so far, by parameter index, for the slow-query log
+        Map<Integer, Object> params = new TreeMap<>();
+        Object proxy = Proxy.newProxyInstance(QueryStats.class.getClassLoader(),
+            new Class<?>[]{type},
+            (self, method, args) -> {
+                String name = method.getName();
+                switch (name) {
+                    case "equals":
+                        return self == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(self);
+                    case "getResultSet":
+                        ResultSet rs = (ResultSet) invoke(method, target, args);
+                        return rs == null || last[0] == null ? rs : countRows(rs, last[0]);
+                    case "clearParameters":
+                        params.clear();
+                        return invoke(method, target, args);
+                    default:
+                        break;
+                }
+                if (prepared != null && name.startsWith("set") && args != null && args.length >= 2
+                        && args[0] instanceof Integer) {
+                    params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                }
+                if (!name.startsWith("execute")) {
+                    return invoke(method, target, args);
+                }
+
+                // Plain statements carry their SQL in the first argument
+                Entry entry = prepared != null ? prepared
+                            : entry(callSite(), args != null && args.length > 0 ? (String) args[0] : "batch");
+                last[0] = entry;
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = invoke(method, target, args);
+                } catch (SQLException e) {
+                    long elapsed = System.nanoTime() - start;
+                    entry.latency.recordNanos(elapsed);
+                    entry.errors.incrementAndGet();
+                    entry.lastError = e.getSQLState() + ": " + e.getMessage();
+                    logIfSlow(entry, params, elapsed, entry.lastError);
+                    throw e;
+                }
+                long elapsed = System.nanoTime() - start;
+                entry.latency.recordNanos(elapsed);
+                logIfSlow(entry, params, elapsed, null);
+
+                if (result instanceof ResultSet) {
+                    return countRows((ResultSet) result, entry);
+                }
+                if (result instanceof Integer || result instanceof Long) {
+                    entry.rows.addAndGet(Math.max(0, ((Number) result).longValue()));
+                } else if (result instanceof int[]) {
+                    for (int count : (int[]) result) {
+                        entry.rows.addAndGet(Math.max(0, count));
+                    }
+                }
+                return result;
+            });
+        return type.cast(proxy);
+    }
+
+    private static void logIfSlow(Entry entry, Map<Integer, Object> params, long nanos, String error) {
+        SlowQueryLog log = DatabaseConfig.getSlowQueryLog();
+        if (log == null || !log.isSlow(nanos) || entry.sql.equals("batch")) {
+            return;
+        }
+        Object[] bound = null;
+        if (!params.isEmpty()) {
+            bound = new Object[params.keySet().stream().mapToInt(Integer::intValue).max().getAsInt()];
+            for (Map.Entry<Integer, Object> param : params.entrySet()) {
+                bound[param.getKey() - 1] = param.getValue();
+            }
+        }
+        log.record(entry.site, entry.sql, bound, nanos, error);
+    }
+
+    private static ResultSet countRows(ResultSet rs, Entry entry) {
+        return (ResultSet) Proxy.newProxyInstance(QueryStats.class.getClassLoader(),
+            new Class<?>[]{ResultSet.class},
+            (self, method, args) -> {
+                Object result = invoke(method, rs, args);
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    entry.rows.incrementAndGet();
+                }
+                return result;
+            });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
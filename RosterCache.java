@@ -0,0 +1,86 @@
+/**
+ * Read-through cache of the per-class lists TeacherFrame shows: the
+ * students roster, today's attendance, marks, fees and study materials.
+ *
+ * Entries are keyed by (teacher, class, kind), bounded in number and
+ * expire after a TTL, so switching back to a class just viewed repaints
+ * from memory. Writes invalidate exactly the kind they change. A load
+ * that was already running when its entry was invalidated does not
+ * store its (possibly stale) result.
+ *
+ * Cached values are shared; callers must not modify them.
+ */
+public class RosterCache {
+
+    public static final String STUDENTS = "students";
+    public static final String ATTENDANCE = "attendance";
+    public static final String MARKS = "marks";
+    public static final String FEES = "fees";
+    public static final String MATERIALS = "materials";
+
+    private static final String[] KINDS = {STUDENTS, ATTENDANCE, MARKS, FEES, MATERIALS};
+
+    private final ExpiringLruCache<String, Object> entries;
+    private long generation;
+
+    public RosterCache(int maxEntries, long ttlMillis) {
+        this.entries = new ExpiringLruCache<>(maxEntries, ttlMillis);
+    }
+
+    /**
+     * Cached value for the key, or the loader's result (which is then
+     * cached). Runs the loader on the calling thread; call off the EDT.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int teacherId, String className, String kind, AsyncLoader.Query<T> load)
+            throws Exception {
+        String key = key(teacherId, className, kind);
+        Object cached = entries.get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        long startedAt = currentGeneration();
+        T value = load.run();
+        synchronized (this) {
+            if (generation == startedAt) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drop one kind of list for a class after a write changed it
+     */
+    public synchronized void invalidate(int teacherId, String className, String kind) {
+        generation++;
+        entries.invalidate(key(teacherId, className, kind));
+    }
+
+    /**
+     * Drop every list for a class, e.g. after its roster changed
+     */
+    public synchronized void invalidateClass(int teacherId, String className) {
+        generation++;
+        for (String kind : KINDS) {
+            entries.invalidate(key(teacherId, className, kind));
+        }
+    }
+
+    public double getHitRate() {
+        return entries.getHitRate();
+    }
+
+    public String describe() {
+        return entries.describe();
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private static String key(int teacherId, String className, String kind) {
+        return teacherId + ":" + className + ":" + kind;
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned schema migrations, applied at startup.
+ *
+ * Scripts live in sql/migrations and are named V<version>__<description>.sql.
+ * Each pending script runs in its own transaction, in version order, and is
+ * recorded in schema_migrations so it runs once per database. An advisory
+ * lock keeps two clients starting at the same time from applying the same
+ * script twice. Applied scripts are never re-run; if one has been edited
+ * since, a warning is printed.
+ *
+ * -Dedutrack.migrations.dir points at another script directory;
+ * -Dedutrack.migrate=false skips migrations altogether.
+ */
+public class SchemaMigrator {
+
+    private static final Path MIGRATIONS_DIR =
+        Paths.get(System.getProperty("edutrack.migrations.dir", "sql/migrations"));
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("edutrack.migrate", "true"));
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    // Arbitrary; serializes migrations across clients sharing the database
+    private static final long LOCK_KEY = 0x45647554726b4d67L;
+
+    static final String HISTORY_SQL =
+        "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+        "  version integer PRIMARY KEY, " +
+        "  description text NOT NULL, " +
+        "  checksum bigint NOT NULL, " +
+        "  applied_at timestamptz NOT NULL DEFAULT now(), " +
+        "  execution_ms bigint NOT NULL" +
+        ")";
+
+    /**
+     * One script: its version, description and contents
+     */
+    static final class Migration {
+        final int version;
+        final String description;
+        final String script;
+        final long checksum;
+
+        Migration(int version, String description, String script) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.checksum = checksum(script);
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + "__" + description;
+        }
+    }
+
+    /**
+     * Bring the application database up to date; returns how many scripts ran
+     */
+    public static int migrate() throws SQLException {
+        if (!ENABLED) {
+            return 0;
+        }
+        if (!Files.isDirectory(MIGRATIONS_DIR)) {
+            System.err.println("No migrations at " + MIGRATIONS_DIR.toAbsolutePath() + "; schema not checked");
+            return 0;
+        }
+        // Not a pooled connection: a long CREATE INDEX must not be reclaimed as a leak
+        try (Connection conn = DatabaseConfig.openDedicatedConnection()) {
+            return migrate(conn, MIGRATIONS_DIR);
+        }
+    }
+
+    /**
+     * Apply the directory's pending scripts on the given connection, in the
+     * schema its search_path creates objects in
+     */
+    static int migrate(Connection conn, Path dir) throws SQLException {
+        Map<Integer, Migration> migrations = load(dir);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            inTransaction(conn, () -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(HISTORY_SQL);
+                }
+            });
+
+            Map<Integer, Long> applied = appliedChecksums(conn);
+            int count = 0;
+            for (Migration migration : migrations.values()) {
+                Long checksum = applied.get(migration.version);
+                if (checksum == null) {
+                    if (apply(conn, migration)) {
+                        count++;
+                    }
+                } else if (checksum != migration.checksum) {
+                    System.err.println("Migration " + migration + " has changed since it was applied; " +
+                                       "not re-running it");
+                }
+            }
+            return count;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static boolean apply(Connection conn, Migration migration) throws SQLException {
+        boolean[] ran = new boolean[1];
+        long start = System.nanoTime();
+        try {
+            inTransaction(conn, () -> {
+                // Another client may have applied it while we waited for the lock
+                if (appliedChecksums(conn).containsKey(migration.version)) {
+                    return;
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(migration.script);
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO schema_migrations (version, description, checksum, execution_ms) " +
+                        "VALUES (?, ?, ?, ?)")) {
+                    pstmt.setInt(1, migration.version);
+                    pstmt.setString(2, migration.description);
+                    pstmt.setLong(3, migration.checksum);
+                    pstmt.setLong(4, (System.nanoTime() - start) / 1_000_000);
+                    pstmt.executeUpdate();
+                }
+                ran[0] = true;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Migration " + migration + " failed: " + e.getMessage(),
+                e.getSQLState(), e);
+        }
+        if (ran[0]) {
+            System.out.println("Applied migration " + migration + " in " +
+                               (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return ran[0];
+    }
+
+    private interface Work {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Run the work in one transaction holding the migration lock
+     */
+    private static void inTransaction(Connection conn, Work work) throws SQLException {
+        try {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+                pstmt.setLong(1, LOCK_KEY);
+                pstmt.execute();
+            }
+            work.run();
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * The directory's scripts by version
+     */
+    static Map<Integer, Migration> load(Path dir) throws SQLException {
+        Map<Integer, Migration> migrations = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (!m.matches()) {
+                    continue;
+                }
+                Migration migration = new Migration(Integer.parseInt(m.group(1)), m.group(2),
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                Migration clash = migrations.put(migration.version, migration);
+                if (clash != null) {
+                    throw new SQLException("Two migrations with version " + migration.version + ": " +
+                                           clash + ", " + migration);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot read migrations in " + dir + ": " + e.getMessage(), e);
+        }
+        return migrations;
+    }
+
+    // Line endings do not count, so a checkout with CRLF matches one with LF
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,386 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Weekly attendance, average marks and fee collection for every class of
+ * every teacher, for the admin.
+ *
+ * The school is split into one partition per department. A fork/join task
+ * tree runs the partitions in parallel, each as one aggregate query over
+ * its teachers' classes, totals each department where it was fetched and
+ * merges the results. A semaphore bounds how many partitions query at
+ * once, by default to two fewer than the connection pool's size so the
+ * screens still get connections; waiting on it or on the database is a
+ * managed block, so the fork/join pool keeps a thread per core busy
+ * meanwhile. Each partition's wait and query time is kept with the report.
+ *
+ * -Dedutrack.report.parallelism sets the number of concurrent queries.
+ * Build off the EDT.
+ */
+public class SchoolReport {
+
+    // Departments that have teachers; teachers without one form their own partition
+    static final String DEPARTMENTS_SQL =
+        "SELECT department FROM rollup_department_teachers " +
+        "UNION ALL SELECT NULL WHERE EXISTS (SELECT 1 FROM teachers WHERE department IS NULL) " +
+        "ORDER BY 1";
+
+    // One row per teacher and class in a partition; %s is the department filter
+    private static final String CLASSES_SQL =
+        "SELECT t.teacher_code, t.full_name, s.class_name, COUNT(*) AS students, " +
+        "COALESCE(SUM(a.present), 0) AS present, COALESCE(SUM(a.marked), 0) AS marked, " +
+        "COALESCE(SUM((m.unit1 + m.unit2 + m.midterm + m.final)/4.0), 0) AS marks_sum, " +
+        "COUNT(m.unit1 + m.unit2 + m.midterm + m.final) AS marks_count, " +
+        "COALESCE(SUM(f.collected), 0) AS collected, COALESCE(SUM(f.pending), 0) AS fees_pending " +
+        "FROM teachers t " +
+        "JOIN students s ON s.teacher_id = t.teacher_id " +
+        "LEFT JOIN marks m ON m.student_id = s.student_id " +
+        "LEFT JOIN LATERAL (SELECT COUNT(*) FILTER (WHERE status = 'Present') AS present, COUNT(*) AS marked " +
+        "    FROM attendance WHERE student_id = s.student_id AND attendance_date BETWEEN ? AND ?) a ON true " +
+        "LEFT JOIN LATERAL (SELECT SUM(amount) FILTER (WHERE status = 'Paid' AND payment_date BETWEEN ? AND ?) AS collected, " +
+        "    COUNT(*) FILTER (WHERE status = 'Pending') AS pending " +
+        "    FROM fees WHERE student_id = s.student_id) f ON true " +
+        "WHERE %s " +
+        "GROUP BY t.teacher_code, t.full_name, s.class_name " +
+        "ORDER BY t.teacher_code, s.class_name";
+
+    private static final int PARALLELISM = Integer.getInteger("edutrack.report.parallelism", 0);
+
+    /**
+     * Figures for one class, or totals over several
+     */
+    public static final class Line {
+        final String department;
+        final String teacherCode;
+        final String teacherName;
+        final String className;
+        int students;
+        int present;
+        int marked;
+        double marksSum;
+        int marksCount;
+        double collected;
+        int feesPending;
+
+        Line(String department, String teacherCode, String teacherName, String className) {
+            this.department = department;
+            this.teacherCode = teacherCode;
+            this.teacherName = teacherName;
+            this.className = className;
+        }
+
+        void add(Line other) {
+            students += other.students;
+            present += other.present;
+            marked += other.marked;
+            marksSum += other.marksSum;
+            marksCount += other.marksCount;
+            collected += other.collected;
+            feesPending += other.feesPending;
+        }
+
+        /**
+         * Share of the week's marks that were present, 0-100, or null if none were marked
+         */
+        public Double getAttendancePercent() {
+            return marked == 0 ? null : 100.0 * present / marked;
+        }
+
+        /**
+         * Average of the students' marks, or null if none have marks
+         */
+        public Double getAverageMarks() {
+            return marksCount == 0 ? null : marksSum / marksCount;
+        }
+    }
+
+    /**
+     * One department's classes, its totals and how long it took
+     */
+    public static final class Partition {
+        final String department;
+        final List<Line> classes = new ArrayList<>();
+        final Line total;
+        long waitNanos;
+        long queryNanos;
+        String thread;
+
+        Partition(String department) {
+            this.department = department;
+            this.total = new Line(department, "", "", "All classes");
+        }
+    }
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int permits;
+    private final Semaphore queries;
+    private List<Partition> partitions = new ArrayList<>();
+    private final Line school;
+    private long elapsedNanos;
+    private int threads;
+
+    private SchoolReport(LocalDate from, LocalDate to, int permits) {
+        this.from = from;
+        this.to = to;
+        this.permits = permits;
+        this.queries = new Semaphore(permits);
+        this.school = new Line("School", "", "", "All classes");
+    }
+
+    /**
+     * Monday of the week that day falls in
+     */
+    public static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * Report on the week starting weekStart (Monday to Sunday)
+     */
+    public static SchoolReport build(LocalDate weekStart) throws SQLException {
+        int permits = PARALLELISM > 0 ? PARALLELISM : Math.max(1, DatabaseConfig.getPool().getMaxSize() - 2);
+        SchoolReport report = new SchoolReport(weekStart, weekStart.plusDays(6), permits);
+        long start = System.nanoTime();
+
+        List<String> departments = new ArrayList<>();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(DEPARTMENTS_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                departments.add(rs.getString("department"));
+            }
+        }
+
+        if (!departments.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            try {
+                report.partitions = pool.invoke(report.new Split(departments));
+            } catch (CompletionException e) {
+                // Rethrown across threads the original may be nested more than once
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    }
+                }
+                throw e;
+            } finally {
+                report.threads = pool.getPoolSize();
+                pool.shutdown();
+            }
+        }
+        for (Partition partition : report.partitions) {
+            report.school.add(partition.total);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        System.out.print(report.timings());
+        return report;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * Every department in name order, teachers without one last
+     */
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    public Line getSchoolTotal() {
+        return school;
+    }
+
+    /**
+     * Halves the department list until each task holds one department
+     */
+    private final class Split extends RecursiveTask<List<Partition>> {
+        private final List<String> departments;
+
+        Split(List<String> departments) {
+            this.departments = departments;
+        }
+
+        @Override
+        protected List<Partition> compute() {
+            if (departments.size() == 1) {
+                List<Partition> single = new ArrayList<>(1);
+                single.add(fetch(departments.get(0)));
+                return single;
+            }
+            int middle = departments.size() / 2;
+            Split first = new Split(departments.subList(0, middle));
+            first.fork();
+            List<Partition> second = new Split(departments.subList(middle, departments.size())).compute();
+            List<Partition> merged = new ArrayList<>(first.join());
+            merged.addAll(second);
+            return merged;
+        }
+    }
+
+    private Partition fetch(String department) {
+        Partition partition = new Partition(department);
+        partition.thread = Thread.currentThread().getName();
+        long waitStart = System.nanoTime();
+        try {
+            blocking(() -> {
+                queries.acquire();
+                return null;
+            });
+            long queryStart = System.nanoTime();
+            partition.waitNanos = queryStart - waitStart;
+            try {
+                blocking(() -> query(partition));
+            } finally {
+                queries.release();
+                partition.queryNanos = System.nanoTime() - queryStart;
+            }
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        for (Line line : partition.classes) {
+            partition.total.add(line);
+        }
+        return partition;
+    }
+
+    private Void query(Partition partition) throws SQLException {
+        String filter = partition.department == null ? "t.department IS NULL" : "t.department = ?";
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(classesSql(filter))) {
+            pstmt.setObject(1, from);
+            pstmt.setObject(2, to);
+            pstmt.setObject(3, from);
+            pstmt.setObject(4, to);
+            if (partition.department != null) {
+                pstmt.setString(5, partition.department);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Line line = new Line(partition.department, rs.getString("teacher_code"),
+                        rs.getString("full_name"), rs.getString("class_name"));
+                    line.students = rs.getInt("students");
+                    line.present = rs.getInt("present");
+                    line.marked = rs.getInt("marked");
+                    line.marksSum = rs.getDouble("marks_sum");
+                    line.marksCount = rs.getInt("marks_count");
+                    line.collected = rs.getDouble("collected");
+                    line.feesPending = rs.getInt("fees_pending");
+                    partition.classes.add(line);
+                }
+            }
+        }
+        return null;
+    }
+
+    static String classesSql(String departmentFilter) {
+        return String.format(CLASSES_SQL, departmentFilter);
+    }
+
+    // Run blocking work so the fork/join pool can start another thread meanwhile
+    private static <T> T blocking(AsyncLoader.Query<T> work) throws Exception {
+        class Blocker implements ForkJoinPool.ManagedBlocker {
+            T result;
+            Exception failure;
+            boolean done;
+
+            @Override
+            public boolean block() {
+                try {
+                    result = work.run();
+                } catch (Exception e) {
+                    failure = e;
+                }
+                done = true;
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return done;
+            }
+        }
+        Blocker blocker = new Blocker();
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.failure != null) {
+            throw blocker.failure;
+        }
+        return blocker.result;
+    }
+
+    /**
+     * How the report was built: per partition, when it waited and how long it queried
+     */
+    public String timings() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+            "School report %s to %s: %d partitions in %.1f ms, %d concurrent queries, %d threads%n",
+            from, to, partitions.size(), elapsedNanos / 1e6, permits, threads));
+        sb.append(String.format(Locale.ROOT, "  %-24s %6s %9s %9s  %s%n",
+            "Department", "Rows", "Wait ms", "Query ms", "Thread"));
+        for (Partition p : partitions) {
+            sb.append(String.format(Locale.ROOT, "  %-24s %6d %9.1f %9.1f  %s%n",
+                departmentName(p.department), p.classes.size(), p.waitNanos / 1e6, p.queryNanos / 1e6, p.thread));
+        }
+        return sb.toString();
+    }
+
+    static String departmentName(String department) {
+        return department == null ? "(no department)" : department;
+    }
+
+    /**
+     * Write every class, then the department and school totals, as CSV
+     */
+    public void exportCsv(Path target) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            out.write("department,teacher_code,teacher,class,students,attendance_pct,average_marks,"
+                + "fees_collected,fees_pending");
+            out.newLine();
+            for (Partition partition : partitions) {
+                for (Line line : partition.classes) {
+                    writeCsv(out, line);
+                }
+            }
+            for (Partition partition : partitions) {
+                writeCsv(out, partition.total);
+            }
+            writeCsv(out, school);
+        }
+    }
+
+    private static void writeCsv(BufferedWriter out, Line line) throws IOException {
+        out.write(String.join(",",
+            csv(departmentName(line.department)), csv(line.teacherCode), csv(line.teacherName), csv(line.className),
+            String.valueOf(line.students), number(line.getAttendancePercent()), number(line.getAverageMarks()),
+            String.format(Locale.ROOT, "%.2f", line.collected), String.valueOf(line.feesPending)));
+        out.newLine();
+    }
+
+    private static String number(Double value) {
+        return value == null ? "" : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,157 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * The school-wide weekly report: every class with its attendance, average
+ * marks and fees, department totals, and how long each department took to
+ * fetch. Opened from the AdminFrame header.
+ */
+public class SchoolReportDialog extends JDialog {
+
+    private static final String[] WEEKS = {"This week", "Last week", "2 weeks ago", "3 weeks ago"};
+    private static final String[] COLUMNS = {
+        "Department", "Teacher", "Class", "Students", "Attendance %", "Avg Marks", "Fees Collected", "Fees Pending"
+    };
+
+    private final AsyncLoader loader = new AsyncLoader();
+    private final JComboBox<String> weekSelector = new JComboBox<>(WEEKS);
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final JTextArea timingsArea = new JTextArea(8, 80);
+    private final JButton exportButton = new JButton("Export…");
+    private SchoolReport report;
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 3 || column == 7 ? Integer.class : column >= 4 ? Double.class : String.class;
+        }
+    };
+
+    public SchoolReportDialog(Frame owner) {
+        super(owner, "Weekly School Report", false);
+        setSize(1000, 650);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.setRowHeight(24);
+
+        timingsArea.setEditable(false);
+        timingsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        weekSelector.addActionListener(e -> refresh());
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        exportButton.addActionListener(e -> export());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Week:"));
+        top.add(weekSelector);
+        top.add(summaryLabel);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(refreshButton);
+        buttons.add(exportButton);
+        buttons.add(closeButton);
+
+        JPanel bottom = new JPanel(new BorderLayout(10, 10));
+        bottom.add(new JScrollPane(timingsArea), BorderLayout.CENTER);
+        bottom.add(buttons, BorderLayout.SOUTH);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(top, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(bottom, BorderLayout.SOUTH);
+        add(panel);
+
+        refresh();
+    }
+
+    @Override
+    public void dispose() {
+        loader.cancelAll();
+        super.dispose();
+    }
+
+    private void refresh() {
+        LocalDate weekStart = SchoolReport.weekStart(LocalDate.now()).minusWeeks(weekSelector.getSelectedIndex());
+        summaryLabel.setText("Loading " + weekStart + "…");
+        exportButton.setEnabled(false);
+        loader.submit("report", () -> SchoolReport.build(weekStart), this::display, e -> {
+            e.printStackTrace();
+            summaryLabel.setText(" ");
+            JOptionPane.showMessageDialog(this,
+                "Error building report: " + e.getMessage(),
+                "Database Error",
+                JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void display(SchoolReport report) {
+        this.report = report;
+        model.setRowCount(0);
+        for (SchoolReport.Partition partition : report.getPartitions()) {
+            for (SchoolReport.Line line : partition.classes) {
+                addRow(line);
+            }
+            addRow(partition.total);
+        }
+
+        SchoolReport.Line school = report.getSchoolTotal();
+        Double attendance = school.getAttendancePercent();
+        Double marks = school.getAverageMarks();
+        summaryLabel.setText(String.format("%s to %s: %d students, attendance %s, average marks %s, "
+                + "%.2f collected, %d fees pending",
+            report.getFrom(), report.getTo(), school.students,
+            attendance == null ? "-" : String.format("%.1f%%", attendance),
+            marks == null ? "-" : String.format("%.1f", marks),
+            school.collected, school.feesPending));
+        timingsArea.setText(report.timings());
+        timingsArea.setCaretPosition(0);
+        exportButton.setEnabled(true);
+    }
+
+    private void addRow(SchoolReport.Line line) {
+        model.addRow(new Object[]{
+            SchoolReport.departmentName(line.department),
+            line.teacherName,
+            line.className,
+            line.students,
+            line.getAttendancePercent(),
+            line.getAverageMarks(),
+            line.collected,
+            line.feesPending
+        });
+    }
+
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Weekly Report");
+        chooser.setSelectedFile(new File("school-report-" + report.getFrom() + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            report.exportCsv(chooser.getSelectedFile().toPath());
+            JOptionPane.showMessageDialog(this, "Report saved to " + chooser.getSelectedFile().getName());
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error saving report: " + e.getMessage(),
+                "Export Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.sql.*;
+
+/**
+ * School-wide numbers for the admin dashboard cards: total teachers,
+ * active teachers, distinct departments and distinct classes.
+ *
+ * They are read from the school_rollups row that triggers keep current
+ * (migration V4__school_rollups), so loading them costs one primary-key lookup.
+ * On a database without the rollups it falls back to computing them live.
+ */
+public class SchoolStats {
+
+    static final String ROLLUP_SQL =
+        "SELECT total_teachers, active_teachers, departments, total_classes FROM school_rollups";
+
+    // Same numbers without the rollups: a scan of teachers and their classes arrays
+    static final String LIVE_SQL =
+        "SELECT COUNT(*) AS total_teachers, " +
+        "COUNT(*) FILTER (WHERE status = 'Active') AS active_teachers, " +
+        "COUNT(DISTINCT department) AS departments, " +
+        "(SELECT COUNT(DISTINCT c) FROM teachers t, unnest(t.classes) AS c " +
+        " WHERE c IS NOT NULL AND c <> '') AS total_classes " +
+        "FROM teachers";
+
+    private static final String UNDEFINED_TABLE = "42P01";
+
+    int totalTeachers;
+    int activeTeachers;
+    int departments;
+    int totalClasses;
+
+    public static SchoolStats fetch() throws SQLException {
+        try {
+            return read(ROLLUP_SQL);
+        } catch (SQLException e) {
+            if (!UNDEFINED_TABLE.equals(e.getSQLState())) {
+                throw e;
+            }
+            System.err.println("school_rollups not installed (migration V4 not applied); counting live");
+            return read(LIVE_SQL);
+        }
+    }
+
+    private static SchoolStats read(String query) throws SQLException {
+        SchoolStats stats = new SchoolStats();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                stats.totalTeachers = rs.getInt("total_teachers");
+                stats.activeTeachers = rs.getInt("active_teachers");
+                stats.departments = rs.getInt("departments");
+                stats.totalClasses = rs.getInt("total_classes");
+            }
+        }
+        return stats;
+    }
+}
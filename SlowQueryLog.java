@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Log of statements slower than DatabaseConfig's threshold, with the call
+ * site, bind parameters, duration and the query plan.
+ *
+ * Bind parameters are written as their types and lengths only, unless
+ * -Dedutrack.db.slowQueryLogValues=true or the SQL was registered with
+ * logValuesOf(). Statements registered with sensitive(), or that touch
+ * passwords or the users table, never have their values written or sent
+ * back to the server for a plan.
+ *
+ * QueryStats reports each slow execution here. The plan is captured on a
+ * background thread over a dedicated connection: reads are re-run under
+ * EXPLAIN (ANALYZE, BUFFERS) in a read-only transaction that is rolled
+ * back, writes only get a plain EXPLAIN so nothing is executed twice. Each
+ * call site and SQL is explained at most once a minute. Entries go to a
+ * size-rotated text file (slow-queries.log, .1, .2, ...).
+ */
+public class SlowQueryLog {
+
+    private static final long PLAN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int EXPLAIN_TIMEOUT_S = 30;
+
+    private static final boolean LOG_VALUES = Boolean.getBoolean("edutrack.db.slowQueryLogValues");
+    private static final Pattern CREDENTIALS = Pattern.compile("(?i)\\b(password|users)\\b");
+    private static final Set<String> VALUES_LOGGED = ConcurrentHashMap.newKeySet();
+    private static final Set<String> SENSITIVE = ConcurrentHashMap.newKeySet();
+
+    private final long thresholdNanos;
+    private final Path file;
+    private final long maxBytes;
+    private final int keepFiles;
+
+    private final AtomicLong dropped = new AtomicLong();
+    // One thread so entries are written whole and in order; a burst beyond the queue is dropped
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(200), r -> {
+            Thread t = new Thread(r, "edutrack-slow-query-log");
+            t.setDaemon(true);
+            return t;
+        }, (r, executor) -> dropped.incrementAndGet());
+    private final Map<String, Long> lastPlanned = new ConcurrentHashMap<>();
+    private Connection explainConnection;
+
+    SlowQueryLog(long thresholdMillis, Path file, long maxBytes, int keepFiles) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.keepFiles = keepFiles;
+    }
+
+    boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    /**
+     * Write this statement's bind values as they are, e.g. ones that are
+     * only IDs and class names
+     */
+    public static void logValuesOf(String sql) {
+        VALUES_LOGGED.add(sql);
+    }
+
+    /**
+     * Never write this statement's bind values, not even their lengths, and
+     * never re-run it for a plan
+     */
+    public static void sensitive(String sql) {
+        SENSITIVE.add(sql);
+    }
+
+    static boolean isSensitive(String sql) {
+        return SENSITIVE.contains(sql) || CREDENTIALS.matcher(sql).find();
+    }
+
+    /**
+     * Queue an entry if the execution took longer than the threshold.
+     * params holds the values bound to ?1..?n, or is null for plain statements.
+     */
+    void record(String site, String sql, Object[] params, long nanos, String error) {
+        if (!isSlow(nanos)) {
+            return;
+        }
+        // Described here so that sensitive values go no further than this call
+        boolean sensitive = isSensitive(sql);
+        String described = params == null || params.length == 0 ? null
+            : describe(params, !sensitive && (LOG_VALUES || VALUES_LOGGED.contains(sql)), !sensitive);
+        Object[] planParams = sensitive ? null : params;
+
+        String key = site + "\0" + sql;
+        long now = System.nanoTime();
+        Long last = lastPlanned.get(key);
+        boolean explain = !sensitive && (last == null || now - last > PLAN_INTERVAL_NANOS);
+        if (explain) {
+            lastPlanned.put(key, now);
+        }
+        LocalDateTime at = LocalDateTime.now();
+        writer.execute(() -> write(at, site, sql, described, planParams, nanos, error, explain, sensitive));
+    }
+
+    private void write(LocalDateTime at, String site, String sql, String described, Object[] params,
+                       long nanos, String error, boolean explain, boolean sensitive) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%s  %.1f ms  %s%n", at, nanos / 1e6, site));
+        sb.append("  sql:    ").append(sql.replaceAll("\\s+", " ")).append(System.lineSeparator());
+        if (described != null) {
+            sb.append("  params: ").append(described).append(System.lineSeparator());
+        }
+        if (error != null) {
+            sb.append("  error:  ").append(error).append(System.lineSeparator());
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            sb.append("  (").append(lost).append(" earlier entries dropped, log queue was full)")
+              .append(System.lineSeparator());
+        }
+        if (sensitive) {
+            sb.append("  plan:   not captured, the statement binds credentials").append(System.lineSeparator());
+        } else if (explain) {
+            sb.append(plan(sql, params));
+        } else {
+            sb.append("  plan:   already captured within the last minute").append(System.lineSeparator());
+        }
+        sb.append(System.lineSeparator());
+
+        try {
+            append(sb.toString());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Re-run the statement under EXPLAIN with the same parameters
+     */
+    private String plan(String sql, Object[] params) {
+        boolean readOnly = isReadOnly(sql);
+        String explain = (readOnly ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + sql;
+        StringBuilder sb = new StringBuilder(readOnly ? "  plan (analyzed):" : "  plan (estimated, not executed):")
+            .append(System.lineSeparator());
+        try {
+            Connection conn = explainConnection();
+            conn.setAutoCommit(false);
+            conn.setReadOnly(readOnly);
+            try (PreparedStatement ps = conn.prepareStatement(explain)) {
+                ps.setQueryTimeout(EXPLAIN_TIMEOUT_S);
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        sb.append("    ").append(rs.getString(1)).append(System.lineSeparator());
+                    }
+                }
+            } finally {
+                conn.rollback();
+                conn.setReadOnly(false);
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            sb.append("    unavailable: ").append(e.getMessage()).append(System.lineSeparator());
+            closeExplainConnection();
+        }
+        return sb.toString();
+    }
+
+    private Connection explainConnection() throws SQLException {
+        if (explainConnection == null || !explainConnection.isValid(2)) {
+            closeExplainConnection();
+            explainConnection = DatabaseConfig.openDedicatedConnection();
+        }
+        return explainConnection;
+    }
+
+    private void closeExplainConnection() {
+        if (explainConnection != null) {
+            try {
+                explainConnection.close();
+            } catch (SQLException e) {
+                // Already broken; a new one is opened next time
+            }
+            explainConnection = null;
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        for (int i = 0; i < params.length; i++) {
+            Object value = params[i];
+            if (value instanceof Array) {
+                // Arrays belong to the original connection; send the literal and let the server type it
+                ps.setObject(i + 1, value.toString(), Types.OTHER);
+            } else {
+                ps.setObject(i + 1, value);
+            }
+        }
+    }
+
+    /**
+     * Only plain SELECTs are safe to execute again; anything else is
+     * explained without running it. The read-only transaction catches
+     * SELECTs of functions that write.
+     */
+    static boolean isReadOnly(String sql) {
+        String s = sql.trim().toLowerCase(Locale.ROOT);
+        if (!s.startsWith("select") && !s.startsWith("with")) {
+            return false;
+        }
+        return !s.matches("(?s).*\\b(insert|update|delete|merge)\\b.*")
+            && !s.contains(" for share");
+    }
+
+    /**
+     * The values themselves, or only their types (and, with lengths, the
+     * length of each text value), e.g. $1=String(12), $2=Integer
+     */
+    private static String describe(Object[] params, boolean values, boolean lengths) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object value = params[i];
+            sb.append('$').append(i + 1).append('=');
+            if (value == null) {
+                sb.append("NULL");
+            } else if (!values) {
+                sb.append(value instanceof Array ? "Array" : value.getClass().getSimpleName());
+                if (lengths && value instanceof CharSequence) {
+                    sb.append('(').append(((CharSequence) value).length()).append(')');
+                }
+            } else if (value instanceof Number || value instanceof Boolean || value instanceof Array) {
+                sb.append(value);
+            } else {
+                sb.append('\'').append(value).append('\'');
+            }
+        }
+        return sb.toString();
+    }
+
+    private synchronized void append(String text) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(file) && Files.size(file) + bytes.length > maxBytes) {
+            rotate();
+        }
+        Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // slow-queries.log -> .1 -> .2 ... the oldest falls off the end
+    private void rotate() throws IOException {
+        Files.deleteIfExists(rotated(keepFiles));
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            Path from = rotated(i);
+            if (Files.exists(from)) {
+                Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    @Override
+    public String toString() {
+        return "threshold=" + TimeUnit.NANOSECONDS.toMillis(thresholdNanos) + "ms, file=" + file.toAbsolutePath();
+    }
+}
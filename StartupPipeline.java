@@ -0,0 +1,154 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Staged startup for a frame, with a timing breakdown.
+ *
+ * The frame starts its first queries with fetch() before it builds its
+ * components, so the connection, the queries and the Swing work overlap.
+ * The frame's usual loads then pick the results up with take() instead of
+ * querying again, and report with reached() as each part appears on
+ * screen. Once every expected milestone is reached the frame counts as
+ * interactive and a report of every phase (where it ran, when it started
+ * and how long it took) is logged.
+ */
+public class StartupPipeline {
+
+    private static volatile String lastReport = "No frame has started yet";
+
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private final Map<String, CompletableFuture<?>> started = new ConcurrentHashMap<>();
+    private final Set<String> waitingFor = new LinkedHashSet<>();
+    private boolean finished;
+
+    /**
+     * Start timing; milestones are the reached() names that make the frame interactive
+     */
+    public StartupPipeline(String name, String... milestones) {
+        this.name = name;
+        waitingFor.addAll(Arrays.asList(milestones));
+    }
+
+    /**
+     * Run a query on the background executor now, keyed so that a later
+     * take() with the same key gets its result
+     */
+    public <T> CompletableFuture<T> fetch(String key, String phase, AsyncLoader.Query<T> query) {
+        CompletableFuture<T> result = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return query.run();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                record(phase, "background", start, System.nanoTime());
+            }
+        }, AsyncLoader.executor());
+        if (key != null) {
+            started.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * The result of the fetch started for key, waiting for it if needed, or
+     * otherwise's result if there was none (or it was taken already). Call
+     * from a background query.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T take(String key, AsyncLoader.Query<T> otherwise) throws Exception {
+        CompletableFuture<T> fetched = (CompletableFuture<T>) started.remove(key);
+        if (fetched == null) {
+            return otherwise.run();
+        }
+        try {
+            return fetched.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Time a step on the calling thread, normally the EDT
+     */
+    public void time(String phase, Runnable step) {
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            record(phase, SwingUtilities.isEventDispatchThread() ? "EDT" : "background", start, System.nanoTime());
+        }
+    }
+
+    /**
+     * A milestone is on screen. Call on the EDT; later calls are ignored.
+     */
+    public void reached(String milestone) {
+        if (finished || !waitingFor.remove(milestone)) {
+            return;
+        }
+        long now = System.nanoTime();
+        record(milestone, "shown", now, now);
+        if (waitingFor.isEmpty()) {
+            finished = true;
+            started.clear(); // Nobody will take these now
+            lastReport = report(now);
+            System.out.print(lastReport);
+        }
+    }
+
+    /**
+     * Breakdown of the most recently started frame that became interactive
+     */
+    public static String lastReport() {
+        return lastReport;
+    }
+
+    private void record(String phase, String where, long start, long end) {
+        synchronized (phases) {
+            phases.add(new Phase(phase, where, start, end));
+        }
+    }
+
+    private String report(long interactiveAt) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+            "Startup of %s: interactive after %.1f ms%n", name, (interactiveAt - startNanos) / 1e6));
+        sb.append(String.format(Locale.ROOT, "  %-28s %-10s %9s %9s%n", "Phase", "Where", "Start ms", "Took ms"));
+        List<Phase> sorted;
+        synchronized (phases) {
+            sorted = new ArrayList<>(phases);
+        }
+        sorted.sort(Comparator.comparingLong(p -> p.start));
+        for (Phase p : sorted) {
+            sb.append(String.format(Locale.ROOT, "  %-28s %-10s %9.1f %9.1f%n", p.name, p.where,
+                (p.start - startNanos) / 1e6, (p.end - p.start) / 1e6));
+        }
+        return sb.toString();
+    }
+
+    private static final class Phase {
+        final String name;
+        final String where;
+        final long start;
+        final long end;
+
+        Phase(String name, String where, long start, long end) {
+            this.name = name;
+            this.where = where;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
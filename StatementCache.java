@@ -0,0 +1,168 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of prepared statements keyed by SQL text.
+ *
+ * A statement is taken out of the cache while a caller holds it and put
+ * back when the caller closes it, so two callers never share one
+ * statement. Idle statements are evicted least-recently-used first once
+ * the cache holds more than its capacity.
+ */
+public class StatementCache {
+
+    // Counters are shared by every connection in the pool
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private final Connection raw;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> idle;
+
+    public StatementCache(Connection raw, int capacity) {
+        this.raw = raw;
+        this.capacity = capacity;
+        this.idle = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Hand out a prepared statement for the SQL, reusing an idle one if cached.
+     * Closing the returned statement puts it back in the cache.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        if (capacity <= 0) {
+            misses.incrementAndGet();
+            return raw.prepareStatement(sql);
+        }
+
+        PreparedStatement ps;
+        synchronized (idle) {
+            ps = idle.remove(sql);
+        }
+        if (ps != null && !ps.isClosed()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            ps = raw.prepareStatement(sql);
+        }
+        return checkout(sql, ps);
+    }
+
+    private PreparedStatement checkout(String sql, PreparedStatement ps) {
+        boolean[] returned = {false};
+        Object proxy = Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class},
+            (self, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned[0]) {
+                            returned[0] = true;
+                            giveBack(sql, ps);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned[0] || ps.isClosed();
+                    case "equals":
+                        return self == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(self);
+                    default:
+                        break;
+                }
+                if (returned[0]) {
+                    throw new SQLException("Statement has already been closed");
+                }
+                try {
+                    return method.invoke(ps, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        return (PreparedStatement) proxy;
+    }
+
+    private void giveBack(String sql, PreparedStatement ps) {
+        try {
+            if (ps.isClosed()) {
+                return;
+            }
+            ResultSet open = ps.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.clearWarnings();
+            ps.setMaxRows(0);
+            ps.setFetchSize(0);
+            ps.setQueryTimeout(0);
+        } catch (SQLException e) {
+            closeQuietly(ps);
+            return;
+        }
+
+        PreparedStatement displaced;
+        synchronized (idle) {
+            displaced = idle.put(sql, ps);
+        }
+        if (displaced != null && displaced != ps) {
+            closeQuietly(displaced);
+        }
+    }
+
+    /**
+     * Close every idle statement
+     */
+    public void clear() {
+        synchronized (idle) {
+            Iterator<PreparedStatement> it = idle.values().iterator();
+            while (it.hasNext()) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // Connection is being torn down anyway
+        }
+    }
+
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public static String describe() {
+        long h = hits.get();
+        long m = misses.get();
+        double rate = h + m == 0 ? 0 : 100.0 * h / (h + m);
+        return String.format("hits=%d misses=%d evictions=%d hitRate=%.1f%%", h, m, evictions.get(), rate);
+    }
+}
@@ -0,0 +1,229 @@
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bulk student import for TeacherFrame.
+ *
+ * The CSV is streamed to the server with COPY into a temporary staging
+ * table, one line per row as plain text, so no line can make COPY fail.
+ * The lines are split into columns and validated there, and merged into
+ * students with one INSERT ... SELECT, all in a single transaction. Bad
+ * lines, malformed ones included, are reported by line number, not
+ * imported; the good ones are. Expected columns, with a header line:
+ * roll_no, full_name, age, father_name, phone, email, address. A quoted
+ * value may not span lines.
+ */
+public class StudentImporter {
+
+    private static final int COLUMNS = 7;
+
+    // row_no is the line number in the file; the header is line 1
+    static final String STAGING_SQL =
+        "CREATE TEMP TABLE student_import (" +
+        "  row_no bigint GENERATED ALWAYS AS IDENTITY (START WITH 2), line text, " +
+        "  roll_no text, full_name text, age text, father_name text, " +
+        "  phone text, email text, address text, reject text" +
+        ") ON COMMIT DROP";
+
+    // Delimiter and quote never occur in what LineReader sends, so each line is one value
+    private static final char DELIMITER = '\u001f';
+    private static final char QUOTE = '\u001e';
+    static final String COPY_SQL =
+        "COPY student_import (line) FROM STDIN " +
+        "WITH (FORMAT csv, HEADER true, DELIMITER E'\\x1f', QUOTE E'\\x1e')";
+
+    static final String BLANK_LINES_SQL = "DELETE FROM student_import WHERE btrim(COALESCE(line, '')) = ''";
+
+    // A CSV field followed by a comma; a line is well formed if it is a run of them plus a comma
+    private static final String FIELD = "(\"([^\"]|\"\")*\"|[^,\"]*),";
+
+    // Split every line into its columns, unquoting quoted ones; malformed lines are flagged
+    static final String PARSE_SQL =
+        "UPDATE student_import i SET roll_no = p.f[1], full_name = p.f[2], age = p.f[3], " +
+        "  father_name = p.f[4], phone = p.f[5], email = p.f[6], address = p.f[7], reject = CASE " +
+        "    WHEN p.f IS NULL THEN 'Malformed line (check the quotes)' " +
+        "    WHEN cardinality(p.f) <> " + COLUMNS + " " +
+        "      THEN 'Expected " + COLUMNS + " columns, found ' || cardinality(p.f) " +
+        "  END " +
+        "FROM (" +
+        "  SELECT row_no, CASE WHEN line || ',' ~ '^(" + FIELD + ")*$' THEN ARRAY(" +
+        "    SELECT CASE WHEN m[1] LIKE '\"%' " +
+        "      THEN replace(substr(m[1], 2, length(m[1]) - 2), '\"\"', '\"') ELSE m[1] END " +
+        "    FROM regexp_matches(line || ',', '" + FIELD + "', 'g') WITH ORDINALITY AS t(m, n) ORDER BY n" +
+        "  ) END AS f " +
+        "  FROM student_import" +
+        ") p WHERE p.row_no = i.row_no";
+
+    // Flag every bad row in one pass; the first failing check wins
+    static final String VALIDATE_SQL =
+        "UPDATE student_import i SET reject = v.reason FROM (" +
+        "  SELECT row_no, CASE " +
+        "    WHEN COALESCE(btrim(roll_no), '') = '' THEN 'Missing roll number' " +
+        "    WHEN COALESCE(btrim(full_name), '') = '' THEN 'Missing name' " +
+        "    WHEN COALESCE(age, '') !~ '^\\s*[0-9]{1,3}\\s*$' THEN 'Age must be a whole number' " +
+        "    WHEN dupes > 1 THEN 'Roll number appears more than once in the file' " +
+        "    WHEN EXISTS (SELECT 1 FROM students s WHERE s.roll_no = btrim(x.roll_no) " +
+        "                 AND s.class_name = ? AND s.teacher_id = ?) THEN 'Already in this class' " +
+        "  END AS reason " +
+        "  FROM (SELECT *, COUNT(*) OVER (PARTITION BY btrim(roll_no)) AS dupes " +
+        "        FROM student_import WHERE reject IS NULL) x" +
+        ") v WHERE v.row_no = i.row_no AND v.reason IS NOT NULL";
+
+    // Insert the valid rows; any that still hit a unique constraint are flagged instead
+    static final String MERGE_SQL =
+        "WITH inserted AS (" +
+        "  INSERT INTO students (roll_no, full_name, age, class_name, father_name, " +
+        "                        phone, email, address, teacher_id) " +
+        "  SELECT btrim(roll_no), btrim(full_name), btrim(age)::int, ?, NULLIF(btrim(father_name), ''), " +
+        "         NULLIF(btrim(phone), ''), NULLIF(btrim(email), ''), NULLIF(btrim(address), ''), ? " +
+        "  FROM student_import WHERE reject IS NULL ORDER BY row_no " +
+        "  ON CONFLICT DO NOTHING " +
+        "  RETURNING roll_no" +
+        "), conflicted AS (" +
+        "  UPDATE student_import SET reject = 'Conflicts with an existing student' " +
+        "  WHERE reject IS NULL AND btrim(roll_no) NOT IN (SELECT roll_no FROM inserted) " +
+        "  RETURNING 1" +
+        ") " +
+        "SELECT (SELECT COUNT(*) FROM inserted) AS inserted, (SELECT COUNT(*) FROM conflicted) AS conflicted";
+
+    static final String REJECTS_SQL =
+        "SELECT row_no, roll_no, reject FROM student_import WHERE reject IS NOT NULL ORDER BY row_no";
+
+    /**
+     * What an import did: rows read, rows imported, rejected rows by line
+     * number in the file (the header is line 1), and how long it took
+     */
+    public static class Result {
+        long rowsRead;
+        int imported;
+        final Map<Long, String> rejects = new LinkedHashMap<>();
+        long elapsedNanos;
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public Map<Long, String> getRejects() {
+            return rejects;
+        }
+
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public long getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : Math.round(rowsRead / getSeconds());
+        }
+    }
+
+    public static Result importCsv(int teacherId, String className, Path csv)
+            throws SQLException, IOException {
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        // A large import outlasts the pool's leak and abandon timeouts, so it gets its own connection
+        try (Connection conn = DatabaseConfig.openDedicatedConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(STAGING_SQL);
+                }
+
+                CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                // Undecodable bytes become U+FFFD rather than failing the read
+                try (Reader in = new LineReader(
+                        new InputStreamReader(Files.newInputStream(csv), StandardCharsets.UTF_8))) {
+                    result.rowsRead = copy.copyIn(COPY_SQL, in, 64 * 1024);
+                }
+
+                try (Statement stmt = conn.createStatement()) {
+                    result.rowsRead -= stmt.executeUpdate(BLANK_LINES_SQL);
+                    stmt.executeUpdate(PARSE_SQL);
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(VALIDATE_SQL)) {
+                    pstmt.setString(1, className);
+                    pstmt.setInt(2, teacherId);
+                    pstmt.executeUpdate();
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(MERGE_SQL)) {
+                    pstmt.setString(1, className);
+                    pstmt.setInt(2, teacherId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            result.imported = rs.getInt("inserted");
+                        }
+                    }
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(REJECTS_SQL);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String rollNo = rs.getString("roll_no");
+                        result.rejects.put(rs.getLong("row_no"),
+                            (rollNo == null ? "" : "Roll " + rollNo.trim() + ": ") + rs.getString("reject"));
+                    }
+                }
+
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * The file as COPY gets it: carriage returns dropped, and NUL and the
+     * COPY delimiter and quote characters turned into spaces
+     */
+    private static final class LineReader extends FilterReader {
+
+        LineReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            char[] one = new char[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0];
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int kept = 0;
+            while (kept == 0 && len > 0) {
+                int n = super.read(buf, off, len);
+                if (n < 0) {
+                    return -1;
+                }
+                for (int i = off; i < off + n; i++) {
+                    char c = buf[i];
+                    if (c != '\r') {
+                        buf[off + kept++] = c == '\0' || c == DELIMITER || c == QUOTE ? ' ' : c;
+                    }
+                }
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Virtual table model for the students roster.
+ *
+ * Only the row count and the first key of every page are loaded up front.
+ * Pages are fetched when the table asks for their rows, and the next page
+ * is prefetched. Only the most recently used pages are kept, so a large
+ * section costs a few pages of memory and the first paint waits for one
+ * page instead of the whole class.
+ *
+ * Pages are read by keyset on (roll_no, student_id), since roll numbers
+ * may repeat within a class. Each row also carries its student ID, which
+ * the table does not show; getStudentId() returns it.
+ *
+ * Call from the EDT only; fetching happens on the frame's AsyncLoader.
+ */
+public class StudentsTableModel extends AbstractTableModel {
+
+    static final String[] COLUMNS = {"Roll No", "Name", "Age", "Father's Name", "Phone", "Email", "Actions"};
+    static final int ACTIONS_COLUMN = 6;
+
+    private static final int PAGE_SIZE = Integer.getInteger("edutrack.students.pageSize", 100);
+    private static final int MAX_CACHED_PAGES = Integer.getInteger("edutrack.students.cachedPages", 8);
+
+    // Row count and the key each page starts at, in one index-only pass
+    static final String INDEX_SQL =
+        "SELECT roll_no, student_id, total FROM (" +
+        "  SELECT roll_no, student_id, row_number() OVER (ORDER BY roll_no, student_id) AS rn, " +
+        "  COUNT(*) OVER () AS total " +
+        "  FROM students WHERE class_name = ? AND teacher_id = ?" +
+        ") t WHERE (rn - 1) % ? = 0 ORDER BY roll_no, student_id";
+
+    // Only the columns the table shows, plus the key for write paths
+    static final String PAGE_SQL =
+        "SELECT student_id, roll_no, full_name, age, father_name, phone, email " +
+        "FROM students WHERE class_name = ? AND teacher_id = ? AND (roll_no, student_id) >= (?, ?) " +
+        "ORDER BY roll_no, student_id LIMIT ?";
+
+    static {
+        // Only a class, a teacher and a page key; worth seeing when a page is slow
+        SlowQueryLog.logValuesOf(INDEX_SQL);
+        SlowQueryLog.logValuesOf(PAGE_SQL);
+    }
+
+    /**
+     * First row of a page; student_id breaks ties between equal roll numbers
+     */
+    static final class PageStart {
+        final String rollNo;
+        final int studentId;
+
+        PageStart(String rollNo, int studentId) {
+            this.rollNo = rollNo;
+            this.studentId = studentId;
+        }
+    }
+
+    /**
+     * Where the pages of one class start, plus its first page of rows
+     */
+    public static final class PageIndex {
+        final int teacherId;
+        final String className;
+        final List<PageStart> pageStarts = new ArrayList<>();
+        int rowCount;
+        List<Object[]> firstPage = new ArrayList<>();
+
+        PageIndex(int teacherId, String className) {
+            this.teacherId = teacherId;
+            this.className = className;
+        }
+    }
+
+    private final AsyncLoader loader;
+    private final Map<Integer, List<Object[]>> pages =
+        new LinkedHashMap<Integer, List<Object[]>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+                return size() > MAX_CACHED_PAGES;
+            }
+        };
+    private final Set<Integer> pending = new HashSet<>();
+
+    private PageIndex index = new PageIndex(0, null);
+    private int generation;
+
+    public StudentsTableModel(AsyncLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Read the page index and first page of a class. Runs off the EDT.
+     */
+    public static PageIndex fetchIndex(int teacherId, String className) throws SQLException {
+        PageIndex index = new PageIndex(teacherId, className);
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(INDEX_SQL)) {
+            pstmt.setString(1, className);
+            pstmt.setInt(2, teacherId);
+            pstmt.setInt(3, PAGE_SIZE);
+            AsyncLoader.track(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    index.pageStarts.add(new PageStart(rs.getString("roll_no"), rs.getInt("student_id")));
+                    index.rowCount = rs.getInt("total");
+                }
+            }
+        }
+        if (!index.pageStarts.isEmpty()) {
+            index.firstPage = fetchPage(teacherId, className, index.pageStarts.get(0));
+        }
+        return index;
+    }
+
+    private static List<Object[]> fetchPage(int teacherId, String className, PageStart from)
+            throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(PAGE_SQL)) {
+            pstmt.setString(1, className);
+            pstmt.setInt(2, teacherId);
+            pstmt.setString(3, from.rollNo);
+            pstmt.setInt(4, from.studentId);
+            pstmt.setInt(5, PAGE_SIZE);
+            AsyncLoader.track(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{
+                        rs.getString("roll_no"),
+                        rs.getString("full_name"),
+                        rs.getInt("age"),
+                        rs.getString("father_name"),
+                        rs.getString("phone"),
+                        rs.getString("email"),
+                        "Actions",
+                        rs.getInt("student_id")
+                    });
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Show a freshly fetched class, dropping every cached page
+     */
+    public void reset(PageIndex newIndex) {
+        generation++;
+        index = newIndex;
+        pages.clear();
+        pending.clear();
+        if (!newIndex.firstPage.isEmpty()) {
+            pages.put(0, newIndex.firstPage);
+        }
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return index.rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTIONS_COLUMN; // Only actions column
+    }
+
+    /**
+     * Cell value, or null while its page is still loading
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[] values = rowAt(row);
+        return values == null ? null : values[column];
+    }
+
+    /**
+     * Database ID of a loaded row, or 0 if its page is not loaded
+     */
+    public int getStudentId(int row) {
+        Object[] values = rowAt(row);
+        return values == null ? 0 : (Integer) values[COLUMNS.length];
+    }
+
+    private Object[] rowAt(int row) {
+        int page = row / PAGE_SIZE;
+        List<Object[]> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        request(page + 1); // Prefetch ahead of the scroll
+        int offset = row % PAGE_SIZE;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    private void request(int page) {
+        if (page >= index.pageStarts.size() || pages.containsKey(page) || !pending.add(page)) {
+            return;
+        }
+        final int requestedIn = generation;
+        final PageIndex current = index;
+        loader.submit("students-page-" + page,
+            () -> fetchPage(current.teacherId, current.className, current.pageStarts.get(page)),
+            rows -> {
+                if (requestedIn != generation) {
+                    return;
+                }
+                pending.remove(page);
+                pages.put(page, rows);
+                int first = page * PAGE_SIZE;
+                fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, getRowCount()) - 1);
+            }, e -> {
+                e.printStackTrace();
+                if (requestedIn == generation) {
+                    pending.remove(page); // Retry on the next repaint
+                }
+            });
+    }
+}
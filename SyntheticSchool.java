@@ -0,0 +1,125 @@
+import java.nio.file.Paths;
+import java.sql.*;
+
+/**
+ * A synthetic school in a scratch schema, for QueryPlanCheck and
+ * DataAccessBenchmark.
+ *
+ * create() builds the schema from sql/migrations and points the
+ * connection's search_path at it; seed() fills it with teachers who each
+ * teach 10A, 10B and 10C, their students, and attendance, marks, fees and
+ * materials for every student; drop() removes it again. The application's
+ * own tables are never touched.
+ */
+public class SyntheticSchool {
+
+    static final String[] TABLES = {
+        "users", "teachers", "students", "attendance", "marks", "fees", "study_materials"
+    };
+    static final int CLASSES_PER_TEACHER = 3;
+    static final String PASSWORD = "secret";
+
+    private static final String[] SEED_SQL = {
+        "INSERT INTO users (email, password, role) " +
+        "SELECT 'teacher' || g || '@plancheck.invalid', '" + PASSWORD + "', 'teacher' " +
+        "FROM generate_series(1, :teachers) g",
+
+        "INSERT INTO teachers (user_id, teacher_code, full_name, department, subject, classes, status) " +
+        "SELECT user_id, 'T' || lpad(user_id::text, 5, '0'), 'Teacher ' || user_id, " +
+        "'Department ' || user_id % 40, 'Subject ' || user_id % 25, ARRAY['10A', '10B', '10C'], " +
+        "CASE WHEN user_id % 10 = 0 THEN 'Inactive' ELSE 'Active' END FROM users",
+
+        "INSERT INTO students (roll_no, full_name, age, class_name, father_name, phone, teacher_id) " +
+        "SELECT lpad(r::text, 3, '0'), 'Student ' || t.teacher_id || '-' || c || '-' || r, 10 + r % 8, c, " +
+        "'Parent ' || r, '555-0100', t.teacher_id " +
+        "FROM teachers t, unnest(t.classes) AS c, generate_series(1, :studentsPerClass) r",
+
+        "INSERT INTO attendance (student_id, attendance_date, status, marked_by) " +
+        "SELECT s.student_id, CURRENT_DATE - d, " +
+        "CASE WHEN (s.student_id + d) % 7 = 0 THEN 'Absent' ELSE 'Present' END, s.teacher_id " +
+        "FROM students s, generate_series(0, :days - 1) d",
+
+        "INSERT INTO marks (student_id, unit1, unit2, midterm, final, updated_by) " +
+        "SELECT student_id, 40 + student_id % 60, 40 + student_id % 55, 40 + student_id % 50, " +
+        "40 + student_id % 45, teacher_id FROM students",
+
+        "INSERT INTO fees (student_id, month, year, amount, status) " +
+        "SELECT s.student_id, m, 2024, 5000.00, CASE WHEN s.student_id % 4 = 0 THEN 'Pending' ELSE 'Paid' END " +
+        "FROM students s, unnest(ARRAY['January', 'February', 'March']) AS m",
+
+        "INSERT INTO study_materials (teacher_id, class_name, title, material_type, upload_date) " +
+        "SELECT t.teacher_id, c, 'Material ' || n, 'notes', CURRENT_DATE - n " +
+        "FROM teachers t, unnest(t.classes) AS c, generate_series(1, 10) n"
+    };
+
+    /**
+     * (Re)create the schema with every migration applied, and make it the
+     * connection's default
+     */
+    static void create(Connection conn, String schema) throws SQLException {
+        drop(conn, schema);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE SCHEMA " + schema);
+            stmt.execute("SET search_path = " + schema + ", public");
+        }
+        SchemaMigrator.migrate(conn, Paths.get(System.getProperty("edutrack.migrations.dir", "sql/migrations")));
+    }
+
+    /**
+     * Fill the schema create() made and refresh its planner statistics
+     */
+    static void seed(Connection conn, int teachers, int studentsPerClass, int days) throws SQLException {
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            // Rollups are rebuilt once at the end instead of per row; nobody needs notifying
+            for (String table : TABLES) {
+                stmt.execute("ALTER TABLE " + table + " DISABLE TRIGGER USER");
+            }
+            for (String sql : SEED_SQL) {
+                stmt.executeUpdate(sql.replace(":teachers", String.valueOf(teachers))
+                    .replace(":studentsPerClass", String.valueOf(studentsPerClass))
+                    .replace(":days", String.valueOf(days)));
+            }
+            for (String table : TABLES) {
+                stmt.execute("ALTER TABLE " + table + " ENABLE TRIGGER USER");
+            }
+            stmt.execute("SELECT rollup_rebuild()");
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : TABLES) {
+                stmt.execute("ANALYZE " + table);
+            }
+        }
+        System.out.printf("Seeded %,d teachers, %,d students in %.1f s%n",
+            teachers, (long) teachers * CLASSES_PER_TEACHER * studentsPerClass,
+            (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * A teacher from the middle of the data, so the sample is not an edge case
+     */
+    static int middleTeacherId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT teacher_id FROM teachers ORDER BY teacher_id " +
+                 "OFFSET (SELECT COUNT(*) / 2 FROM teachers) LIMIT 1")) {
+            if (!rs.next()) {
+                throw new SQLException("No teachers seeded");
+            }
+            return rs.getInt("teacher_id");
+        }
+    }
+
+    static void drop(Connection conn, String schema) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        }
+    }
+}
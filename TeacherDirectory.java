@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory teacher directory for the admin screen.
+ *
+ * Rows are indexed by every 1-, 2- and 3-character gram of the lower-cased
+ * name, teacher code and subject, plus a bitmap per department. A search
+ * intersects the bitmaps of the query's grams and then confirms the
+ * substring match on the few candidates left, so filtering a few thousand
+ * teachers takes microseconds and never touches the database.
+ *
+ * Rows use the same layout as the admin table:
+ * code, name, email, department, subject, classes, status.
+ * Build it off the EDT, then use it only on the EDT.
+ */
+public class TeacherDirectory {
+
+    private static final int MAX_GRAM = 3;
+    private static final int CODE = 0, NAME = 1, DEPARTMENT = 3, SUBJECT = 4;
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private final List<String[]> searchText = new ArrayList<>();
+    private final Map<String, BitSet> grams = new HashMap<>();
+    private final Map<String, BitSet> departments = new HashMap<>();
+
+    public TeacherDirectory(List<Object[]> teachers) {
+        for (Object[] row : teachers) {
+            index(row);
+        }
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Add a newly created teacher without rebuilding the index
+     */
+    public void add(Object[] row) {
+        index(row);
+    }
+
+    private void index(Object[] row) {
+        int id = rows.size();
+        rows.add(row);
+
+        String[] fields = {
+            lower(row[NAME]), lower(row[CODE]), lower(row[SUBJECT])
+        };
+        searchText.add(fields);
+
+        for (String field : fields) {
+            for (int n = 1; n <= MAX_GRAM; n++) {
+                for (int i = 0; i + n <= field.length(); i++) {
+                    grams.computeIfAbsent(field.substring(i, i + n), g -> new BitSet()).set(id);
+                }
+            }
+        }
+        departments.computeIfAbsent(String.valueOf(row[DEPARTMENT]), d -> new BitSet()).set(id);
+    }
+
+    /**
+     * Teachers whose name, code or subject contains the text, optionally
+     * restricted to one department, in teacher code order
+     */
+    public List<Object[]> filter(String text, String department) {
+        String query = lower(text).trim();
+
+        BitSet candidates = new BitSet();
+        candidates.set(0, rows.size());
+
+        if (department != null) {
+            BitSet inDept = departments.get(department);
+            if (inDept == null) {
+                return new ArrayList<>();
+            }
+            candidates.and(inDept);
+        }
+
+        if (!query.isEmpty()) {
+            int n = Math.min(MAX_GRAM, query.length());
+            for (int i = 0; i + n <= query.length() && !candidates.isEmpty(); i++) {
+                BitSet withGram = grams.get(query.substring(i, i + n));
+                if (withGram == null) {
+                    return new ArrayList<>();
+                }
+                candidates.and(withGram);
+            }
+        }
+
+        List<Object[]> matches = new ArrayList<>();
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (query.isEmpty() || contains(searchText.get(id), query)) {
+                matches.add(rows.get(id));
+            }
+        }
+        matches.sort((a, b) -> String.valueOf(a[CODE]).compareTo(String.valueOf(b[CODE])));
+        return matches;
+    }
+
+    private static boolean contains(String[] fields, String query) {
+        for (String field : fields) {
+            if (field.contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String lower(Object value) {
+        return value == null ? "" : value.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,9 +1,23 @@
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 /**
  * Teacher Dashboard Frame - Student Management
@@ -15,52 +29,290 @@ public class TeacherFrame extends JFrame {
     private String[] teacherClasses;
     private String currentClass = "10A";
     
+    private static final String[] TAB_TITLES = {
+        "👥 Students", "📅 Attendance", "📊 Marks", "💰 Fees", "📚 Materials"
+    };
+    private static final int STUDENTS_TAB = 0;
+    private static final int ATTENDANCE_TAB = 1;
+    private static final int MARKS_TAB = 2;
+    private static final int FEES_TAB = 3;
+    private static final int MATERIALS_TAB = 4;
+    private static final String[] TAB_KEYS = {
+        RosterCache.STUDENTS, RosterCache.ATTENDANCE, RosterCache.MARKS, RosterCache.FEES, RosterCache.MATERIALS
+    };
+    // Hidden student_id column of the attendance and fees models; roll numbers may repeat
+    private static final int ID_COLUMN = 4;
+    
+    static final String TEACHER_INFO_SQL = "SELECT full_name, classes FROM teachers WHERE teacher_id = ?";
+    
+    // Tab queries for one class; onlyStudents() narrows them to some of its students
+    static final String ATTENDANCE_SQL =
+        "SELECT s.student_id, s.roll_no, s.full_name, " +
+        "COALESCE(a.status, 'Absent') as status " +
+        "FROM students s " +
+        "LEFT JOIN attendance a ON s.student_id = a.student_id " +
+        "AND a.attendance_date = CURRENT_DATE " +
+        "WHERE s.class_name = ? AND s.teacher_id = ? " +
+        "ORDER BY s.roll_no";
+    static final String MARKS_SQL =
+        "SELECT s.student_id, s.roll_no, s.full_name, " +
+        "COALESCE(m.unit1, 0) as unit1, COALESCE(m.unit2, 0) as unit2, " +
+        "COALESCE(m.midterm, 0) as midterm, COALESCE(m.final, 0) as final " +
+        "FROM students s " +
+        "LEFT JOIN marks m ON s.student_id = m.student_id " +
+        "WHERE s.class_name = ? AND s.teacher_id = ? " +
+        "ORDER BY s.roll_no";
+    static final String FEES_SQL =
+        "SELECT s.student_id, s.roll_no, s.full_name, " +
+        "COALESCE(f.amount, 5000.00) as amount, " +
+        "COALESCE(f.status, 'Pending') as status " +
+        "FROM students s " +
+        "LEFT JOIN fees f ON s.student_id = f.student_id " +
+        "AND f.month = 'January' AND f.year = 2024 " +
+        "WHERE s.class_name = ? AND s.teacher_id = ? " +
+        "ORDER BY s.roll_no";
+    static final String MATERIALS_SQL =
+        "SELECT * FROM study_materials " +
+        "WHERE teacher_id = ? AND class_name = ? " +
+        "ORDER BY upload_date DESC";
+    
+    static final String ADD_STUDENT_SQL =
+        "INSERT INTO students (roll_no, full_name, age, class_name, " +
+        "father_name, phone, email, address, teacher_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING student_id";
+    static final String FEE_STATUS_SQL =
+        "INSERT INTO fees (student_id, month, year, status, payment_date) " +
+        "VALUES (?, 'January', 2024, ?, ?) " +
+        "ON CONFLICT (student_id, month, year) " +
+        "DO UPDATE SET status = ?, payment_date = ? " +
+        "RETURNING (xmax = 0) AS inserted";
+    static final String ADD_MATERIAL_SQL =
+        "INSERT INTO study_materials (teacher_id, title, description, " +
+        "material_type, class_name) VALUES (?, ?, ?, ?, ?)";
+    static final String DELETE_MATERIAL_SQL = "DELETE FROM study_materials WHERE material_id = ?";
+    
+    // Load hidden tabs in the background after the visible one; otherwise only when first selected
+    private static final boolean PREFETCH_TABS =
+        Boolean.parseBoolean(System.getProperty("edutrack.prefetchTabs", "true"));
+    
+    // Runs all database work off the event dispatch thread
+    private final AsyncLoader loader = new AsyncLoader();
+    
+    // First queries run while the components are built; logs time-to-interactive
+    private final StartupPipeline startup;
+    
+    // Roll number -> student_id per class, filled by the roster loaders
+    
+    // Attendance clicks are shown at once and written in batches
+    private final AttendanceWriteQueue attendanceQueue;
+    private String attendanceClass;
+    
+    // School-year attendance per class, loaded when first viewed and kept current as marks are saved
+    private final Map<String, AttendanceHistory> attendanceHistory = new HashMap<>();
+    private AttendanceHistoryDialog historyDialog;
+    // Marks saved while a history loads, which the loaded history may predate; null when none loads
+    private List<AttendanceWriteQueue.Change> savedDuringHistoryLoad;
+    
+    // Other clients' changes to the current class, applied in small batches
+    private static final int MAX_ROW_REFRESH = 50;
+    private final Consumer<ChangeFeed.Change> changeSubscriber = this::onRemoteChange;
+    private final Timer remoteRefresh = new Timer(300, e -> applyRemoteChanges());
+    private final Map<Integer, Set<Integer>> remoteChangedRows = new HashMap<>();
+    private final Set<Integer> remoteReloadTabs = new HashSet<>();
+    private boolean remoteStatsChanged;
+    
+    // Short-lived dashboard numbers per (teacher, class); write paths patch them in place
+    private static final ExpiringLruCache<String, ClassStats> STATS_CACHE =
+        new ExpiringLruCache<>(64, Long.getLong("edutrack.statsCacheTtlMs", 30_000));
+    
+    // Per-(teacher, class) tab contents, so switching classes back and forth skips the database
+    private static final RosterCache ROSTER_CACHE = new RosterCache(
+        Integer.getInteger("edutrack.rosterCacheSize", 200), Long.getLong("edutrack.rosterCacheTtlMs", 60_000));
+    
+    // Last session's data, painted before the database answers; tabs showing it are reconciled on load
+    private final TeacherSnapshot snapshot;
+    private final boolean[] snapshotTabs = new boolean[TAB_TITLES.length];
+    private final ChangedRowHighlighter[] changedRows = new ChangedRowHighlighter[TAB_TITLES.length];
+    
     private JTabbedPane tabbedPane;
+    private final boolean[] staleTabs = new boolean[TAB_TITLES.length];
     private JComboBox<String> classSelector;
+    private JLabel welcomeLabel;
+    private JPanel materialsGrid;
     
     // Statistics labels
     private JLabel totalStudentsLabel, presentTodayLabel, avgMarksLabel, feePendingLabel;
     
     // Tables
     private JTable studentsTable, attendanceTable, marksTable, feesTable;
-    private DefaultTableModel studentsModel, attendanceModel, marksModel, feesModel;
+    private DefaultTableModel attendanceModel, feesModel;
+    private StudentsTableModel studentsModel;
+    private MarksTableModel marksModel;
     
     public TeacherFrame(int teacherId) {
-        this.teacherId = teacherId;
-        loadTeacherInfo();
-        initializeUI();
-        loadStatistics();
-        loadStudents();
+        this(teacherId, null);
+    }
+    
+    /**
+     * Load teacher name and classes in the background, then fill the
+     * class selector and load the selected class
+     */
+    private void loadTeacherInfo(String initialClass) {
+        loader.submit("teacherInfo", () -> startup.take("teacherInfo", this::fetchTeacherInfo), info -> {
+            String shownClass = teacherName == null ? null : currentClass;
+            showTeacher(info.name, info.classes, shownClass != null ? shownClass : initialClass);
+            snapshot.putTeacher(info.name, info.classes);
+            startup.reached("header shown");
+            
+            refreshAllData();
+        }, e -> {
+            e.printStackTrace();
+            startup.reached("header shown");
+            refreshAllData();
+        });
+    }
+    
+    /**
+     * Start the queries the first screen needs before the components exist:
+     * the connection, the teacher's info and, as soon as the class is known,
+     * its statistics and students. The usual loads take() the results.
+     */
+    private void startFetching(String initialClass) {
+        boolean classKnown = initialClass != null && !initialClass.isEmpty();
+        startup.fetch(null, "connection pool", DatabaseConfig::getPool);
+        if (classKnown) {
+            prefetchClass(initialClass);
+        }
+        startup.fetch("teacherInfo", "teacher info query", () -> {
+            TeacherInfo info = fetchTeacherInfo();
+            if (!classKnown) {
+                // Same choice as showTeacher(), made here so the class queries start without waiting for the EDT
+                prefetchClass(info.classes.length > 0 ? info.classes[0] : currentClass);
+            }
+            return info;
+        });
+    }
+    
+    private void prefetchClass(String className) {
+        startup.fetch("statistics:" + className, "statistics query", () -> ClassStats.fetch(teacherId, className));
+        startup.fetch("students:" + className, "students query",
+            () -> StudentsTableModel.fetchIndex(teacherId, className));
+    }
+    
+    private void showTeacher(String name, String[] classes, String initialClass) {
+        teacherName = name;
+        teacherClasses = classes;
+        if (teacherClasses.length > 0) {
+            currentClass = teacherClasses[0];
+        }
+        // Override current class if an explicit value is provided (useful for tests)
+        if (initialClass != null && !initialClass.isEmpty()) {
+            currentClass = initialClass;
+        }
+        
+        welcomeLabel.setText("Welcome, " + teacherName);
+        DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>(teacherClasses);
+        model.setSelectedItem(currentClass);
+        classSelector.setModel(model);
+    }
+    
+    /**
+     * Paint the last session's header and current class from the snapshot,
+     * before the database has answered
+     */
+    private void showSnapshot(String initialClass) {
+        if (snapshot.getTeacherName() == null) {
+            return;
+        }
+        showTeacher(snapshot.getTeacherName(), snapshot.getClasses(), initialClass);
+        showSnapshotClass(currentClass);
+    }
+    
+    /**
+     * Fill the tabs with a class's last-known rows. The loads that follow
+     * replace them and highlight the rows that changed meanwhile.
+     */
+    private void showSnapshotClass(String className) {
+        Arrays.fill(snapshotTabs, false);
+        TeacherSnapshot.ClassData data = snapshot.get(className);
+        if (data == null) {
+            return;
+        }
+        if (data.stats != null && STATS_CACHE.get(statsKey(className)) == null) {
+            showStatistics(data.stats);
+        }
+        if (data.students != null) {
+            studentsModel.reset(data.students);
+            snapshotTabs[STUDENTS_TAB] = true;
+        }
+        if (data.attendance != null) {
+            fillModel(attendanceModel, data.attendance);
+            attendanceClass = className;
+            overlayQueuedAttendance(className);
+            snapshotTabs[ATTENDANCE_TAB] = true;
+        }
+        if (data.marks != null) {
+            marksModel.loadRows(data.marks);
+            snapshotTabs[MARKS_TAB] = true;
+        }
+        if (data.fees != null) {
+            fillModel(feesModel, data.fees);
+            snapshotTabs[FEES_TAB] = true;
+        }
+    }
+    
+    /**
+     * Keep a freshly loaded tab in the snapshot and, if the tab was showing
+     * the snapshot, highlight the rows that turned out different
+     */
+    @SuppressWarnings("unchecked")
+    private void reconcileSnapshot(int tab, Object data) {
+        if (tab == MATERIALS_TAB) {
+            return;
+        }
+        List<Object[]> rows = tab == STUDENTS_TAB
+            ? ((StudentsTableModel.PageIndex) data).firstPage : (List<Object[]>) data;
+        TeacherSnapshot.ClassData before = snapshotTabs[tab] ? snapshot.get(currentClass) : null;
+        if (before != null) {
+            List<Object[]> shown = tab == STUDENTS_TAB ? before.students.firstPage
+                                 : tab == ATTENDANCE_TAB ? before.attendance
+                                 : tab == MARKS_TAB ? before.marks : before.fees;
+            if (shown != null) {
+                changedRows[tab].flash(TeacherSnapshot.changedKeys(shown, rows));
+            }
+        }
+        snapshotTabs[tab] = false;
+        snapshot.put(currentClass, TAB_KEYS[tab], data);
     }
     
-    private void loadTeacherInfo() {
-        try {
-            String query = "SELECT full_name, classes FROM teachers WHERE teacher_id = ?";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
+    private TeacherInfo fetchTeacherInfo() throws SQLException {
+        TeacherInfo info = new TeacherInfo();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(TEACHER_INFO_SQL)) {
             pstmt.setInt(1, teacherId);
             
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                teacherName = rs.getString("full_name");
-                Array classesArray = rs.getArray("classes");
-                if (classesArray != null) {
-                    teacherClasses = (String[]) classesArray.getArray();
-                    if (teacherClasses.length > 0) {
-                        currentClass = teacherClasses[0];
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    info.name = rs.getString("full_name");
+                    Array classesArray = rs.getArray("classes");
+                    if (classesArray != null) {
+                        info.classes = (String[]) classesArray.getArray();
                     }
                 }
             }
-            
-            DatabaseConfig.closeResources(rs, pstmt);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        return info;
     }
     
     private void initializeUI() {
         setTitle("EduTrack - Teacher Portal");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                attendanceQueue.flushAndWait(); // Don't lose queued marks on exit
+                snapshot.save();
+            }
+        });
         setSize(1400, 900);
         setLocationRelativeTo(null);
         
@@ -88,11 +340,18 @@ public class TeacherFrame extends JFrame {
         tabbedPane = new JTabbedPane();
         tabbedPane.setFont(new Font("Arial", Font.PLAIN, 14));
         
-        tabbedPane.addTab("👥 Students", createStudentsPanel());
-        tabbedPane.addTab("📅 Attendance", createAttendancePanel());
-        tabbedPane.addTab("📊 Marks", createMarksPanel());
-        tabbedPane.addTab("💰 Fees", createFeesPanel());
-        tabbedPane.addTab("📚 Materials", createMaterialsPanel());
+        tabbedPane.addTab(TAB_TITLES[STUDENTS_TAB], createStudentsPanel());
+        tabbedPane.addTab(TAB_TITLES[ATTENDANCE_TAB], createAttendancePanel());
+        tabbedPane.addTab(TAB_TITLES[MARKS_TAB], createMarksPanel());
+        tabbedPane.addTab(TAB_TITLES[FEES_TAB], createFeesPanel());
+        tabbedPane.addTab(TAB_TITLES[MATERIALS_TAB], createMaterialsPanel());
+        tabbedPane.addChangeListener(e -> {
+            attendanceQueue.flush();
+            int tab = tabbedPane.getSelectedIndex();
+            if (tab >= 0 && staleTabs[tab] && !loader.isLoading(TAB_KEYS[tab])) {
+                loadTabData(tab);
+            }
+        });
         
         // Center panel with stats and tabs
         JPanel centerPanel = new JPanel(new BorderLayout(0, 10));
@@ -117,7 +376,7 @@ public class TeacherFrame extends JFrame {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 22));
         titleLabel.setForeground(Color.WHITE);
         
-        JLabel welcomeLabel = new JLabel("Welcome, " + teacherName);
+        welcomeLabel = new JLabel("Welcome");
         welcomeLabel.setFont(new Font("Arial", Font.PLAIN, 12));
         welcomeLabel.setForeground(new Color(220, 220, 255));
         
@@ -139,6 +398,18 @@ public class TeacherFrame extends JFrame {
         logoutButton.setFocusPainted(false);
         logoutButton.addActionListener(e -> logout());
         
+        JButton exportButton = new JButton("Export");
+        exportButton.setBackground(Color.WHITE);
+        exportButton.setForeground(new Color(102, 126, 234));
+        exportButton.setFocusPainted(false);
+        JPopupMenu exportMenu = new JPopupMenu();
+        addExportItem(exportMenu, "Roster", CsvExporter::classRoster);
+        addExportItem(exportMenu, "Attendance", CsvExporter::classAttendance);
+        addExportItem(exportMenu, "Marks", CsvExporter::classMarks);
+        addExportItem(exportMenu, "Fees", CsvExporter::classFees);
+        exportButton.addActionListener(e -> exportMenu.show(exportButton, 0, exportButton.getHeight()));
+        
+        rightPanel.add(exportButton);
         rightPanel.add(logoutButton);
         
         headerPanel.add(leftPanel, BorderLayout.WEST);
@@ -155,11 +426,15 @@ public class TeacherFrame extends JFrame {
         JLabel label = new JLabel("Select Class:");
         label.setFont(new Font("Arial", Font.BOLD, 14));
         
-        classSelector = new JComboBox<>(teacherClasses);
+        classSelector = new JComboBox<>();
         classSelector.setPreferredSize(new Dimension(150, 35));
         classSelector.setFont(new Font("Arial", Font.PLAIN, 14));
         classSelector.addActionListener(e -> {
+            // Drop results still in flight for the previous class
+            attendanceQueue.flush();
+            loader.cancelAll();
             currentClass = (String) classSelector.getSelectedItem();
+            showSnapshotClass(currentClass);
             refreshAllData();
         });
         
@@ -234,22 +509,22 @@ public class TeacherFrame extends JFrame {
         addButton.setFocusPainted(false);
         addButton.addActionListener(e -> showAddStudentDialog());
         
+        JButton importButton = new JButton("Import CSV");
+        importButton.setFocusPainted(false);
+        importButton.addActionListener(e -> importStudents());
+        
+        buttonPanel.add(importButton);
         buttonPanel.add(addButton);
         
         // Table
-        String[] columns = {"Roll No", "Name", "Age", "Father's Name", "Phone", "Email", "Actions"};
-        studentsModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 6; // Only actions column
-            }
-        };
+        studentsModel = new StudentsTableModel(loader);
         
         studentsTable = new JTable(studentsModel);
         studentsTable.setRowHeight(50);
         studentsTable.setFont(new Font("Arial", Font.PLAIN, 12));
         studentsTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
         studentsTable.getTableHeader().setBackground(new Color(249, 250, 251));
+        changedRows[STUDENTS_TAB] = new ChangedRowHighlighter(studentsTable, studentsModel::getStudentId);
         
         // Add button renderer and editor for actions column
         studentsTable.getColumn("Actions").setCellRenderer(new ButtonRenderer());
@@ -281,16 +556,24 @@ public class TeacherFrame extends JFrame {
         markAllPresentBtn.setFocusPainted(false);
         markAllPresentBtn.addActionListener(e -> markAllPresent());
         
+        JButton historyBtn = new JButton("History");
+        historyBtn.addActionListener(e -> showAttendanceHistory());
+        
         JButton refreshBtn = new JButton("Refresh");
-        refreshBtn.addActionListener(e -> loadAttendance());
+        refreshBtn.addActionListener(e -> {
+            ROSTER_CACHE.invalidate(teacherId, currentClass, RosterCache.ATTENDANCE);
+            loadAttendance();
+        });
         
         topPanel.add(dateLabel);
         topPanel.add(dateField);
         topPanel.add(markAllPresentBtn);
+        topPanel.add(historyBtn);
         topPanel.add(refreshBtn);
         
         // Table
-        String[] columns = {"Roll No", "Name", "Status", "Actions"};
+        // The student ID rides along in a column the table does not show
+        String[] columns = {"Roll No", "Name", "Status", "Actions", "ID"};
         attendanceModel = new DefaultTableModel(columns, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -302,8 +585,33 @@ public class TeacherFrame extends JFrame {
         attendanceTable.setRowHeight(50);
         attendanceTable.setFont(new Font("Arial", Font.PLAIN, 12));
         attendanceTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+        attendanceTable.removeColumn(attendanceTable.getColumn("ID"));
+        changedRows[ATTENDANCE_TAB] = new ChangedRowHighlighter(attendanceTable,
+            row -> attendanceModel.getValueAt(row, ID_COLUMN));
         
         // Add button renderer for attendance actions
+        attendanceTable.getColumn("Status").setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value,
+                    boolean isSelected, boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                int studentId = (Integer) table.getModel().getValueAt(row, ID_COLUMN);
+                String failure = attendanceQueue.getFailure(attendanceClass, studentId);
+                if (failure != null) {
+                    setText(value + "  ⚠ not saved");
+                    setForeground(new Color(220, 38, 38));
+                    setToolTipText(failure + " - mark again to retry");
+                } else if (attendanceQueue.pendingStatus(attendanceClass, studentId) != null) {
+                    setText(value + "  …");
+                    setForeground(Color.GRAY);
+                    setToolTipText("Saving…");
+                } else {
+                    setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
+                    setToolTipText(null);
+                }
+                return this;
+            }
+        });
         attendanceTable.getColumn("Actions").setCellRenderer(new AttendanceButtonRenderer());
         attendanceTable.getColumn("Actions").setCellEditor(
             new AttendanceButtonEditor(new JCheckBox(), attendanceTable, this));
@@ -332,19 +640,16 @@ public class TeacherFrame extends JFrame {
         
         buttonPanel.add(saveButton);
         
-        // Table
-        String[] columns = {"Roll No", "Name", "Unit 1", "Unit 2", "Mid Term", "Final", "Total", "Grade"};
-        marksModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column >= 2 && column <= 5; // Mark columns editable
-            }
-        };
+        // Table - tracks edited rows and keeps Total/Grade up to date as marks change
+        marksModel = new MarksTableModel();
         
         marksTable = new JTable(marksModel);
         marksTable.setRowHeight(40);
         marksTable.setFont(new Font("Arial", Font.PLAIN, 12));
         marksTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+        marksTable.removeColumn(marksTable.getColumn("ID"));
+        changedRows[MARKS_TAB] = new ChangedRowHighlighter(marksTable,
+            row -> marksModel.getValueAt(row, MarksTableModel.ID_COLUMN));
         
         JScrollPane scrollPane = new JScrollPane(marksTable);
         
@@ -371,7 +676,7 @@ public class TeacherFrame extends JFrame {
         topPanel.add(monthCombo);
         
         // Table
-        String[] columns = {"Roll No", "Name", "Amount", "Status", "Actions"};
+        String[] columns = {"Roll No", "Name", "Amount", "Status", "Actions", "ID"};
         feesModel = new DefaultTableModel(columns, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -383,6 +688,9 @@ public class TeacherFrame extends JFrame {
         feesTable.setRowHeight(50);
         feesTable.setFont(new Font("Arial", Font.PLAIN, 12));
         feesTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+        feesTable.removeColumn(feesTable.getColumn("ID"));
+        changedRows[FEES_TAB] = new ChangedRowHighlighter(feesTable,
+            row -> feesModel.getValueAt(row, ID_COLUMN));
         
         // Add button renderer for fee actions
         feesTable.getColumn("Actions").setCellRenderer(new FeeButtonRenderer());
@@ -410,12 +718,10 @@ public class TeacherFrame extends JFrame {
         topPanel.setBackground(Color.WHITE);
         topPanel.add(addMaterialBtn);
         
-        JPanel materialsGrid = new JPanel(new GridLayout(0, 3, 15, 15));
+        materialsGrid = new JPanel(new GridLayout(0, 3, 15, 15));
         materialsGrid.setBackground(Color.WHITE);
         materialsGrid.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
         
-        loadMaterials(materialsGrid);
-        
         JScrollPane scrollPane = new JScrollPane(materialsGrid);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         
@@ -427,6 +733,17 @@ public class TeacherFrame extends JFrame {
     
     // Continued in Part 2...
     
+    /**
+     * Menu entry exporting one of the current class's lists to CSV
+     */
+    private void addExportItem(JPopupMenu menu, String what, BiFunction<Integer, String, String> query) {
+        JMenuItem item = new JMenuItem(what);
+        item.addActionListener(e -> ExportDialog.start(this, loader, currentClass + " " + what,
+            query.apply(teacherId, currentClass),
+            (currentClass + "-" + what).toLowerCase().replaceAll("[^a-z0-9-]+", "_") + ".csv"));
+        menu.add(item);
+    }
+    
     private void logout() {
         int confirm = JOptionPane.showConfirmDialog(this,
             "Are you sure you want to logout?",
@@ -434,6 +751,7 @@ public class TeacherFrame extends JFrame {
             JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
+            attendanceQueue.flush();
             this.dispose();
             SwingUtilities.invokeLater(() -> {
                 LoginFrame loginFrame = new LoginFrame();
@@ -451,78 +769,151 @@ public class TeacherFrame extends JFrame {
     // Overloaded constructor to allow setting initial class explicitly
     public TeacherFrame(int teacherId, String initialClass) {
         this.teacherId = teacherId;
-        loadTeacherInfo();
-        // Override current class if an explicit value is provided (useful for tests)
-        if (initialClass != null && !initialClass.isEmpty()) {
-            this.currentClass = initialClass;
+        this.attendanceQueue = new AttendanceWriteQueue(teacherId, loader,
+            Integer.getInteger("edutrack.attendanceFlushMs", 1000), this::attendanceFlushed);
+        this.startup = new StartupPipeline("TeacherFrame " + teacherId,
+            "header shown", "statistics shown", "first tab shown");
+        startFetching(initialClass);
+        this.snapshot = TeacherSnapshot.load(teacherId);
+        startup.time("build UI", this::initializeUI);
+        startup.time("paint snapshot", () -> showSnapshot(initialClass));
+        loadTeacherInfo(initialClass);
+        remoteRefresh.setRepeats(false);
+        ChangeFeed.get().subscribe(changeSubscriber);
+    }
+    
+    @Override
+    public void dispose() {
+        ChangeFeed.get().unsubscribe(changeSubscriber);
+        remoteRefresh.stop();
+        snapshot.save();
+        super.dispose();
+    }
+    
+    /**
+     * Load a tab's data in the background and apply it on the EDT, showing
+     * a loading marker on the tab meanwhile. Once applied the tab is no
+     * longer stale and the next stale tab, if any, is prefetched.
+     */
+    private <T> void loadTab(int tab, AsyncLoader.Query<T> query, Consumer<T> apply) {
+        setTabLoading(tab, true);
+        loader.submit(TAB_KEYS[tab], query, data -> {
+            apply.accept(data);
+            reconcileSnapshot(tab, data);
+            staleTabs[tab] = false;
+            setTabLoading(tab, false);
+            startup.reached("first tab shown");
+            prefetchNextTab();
+        }, e -> {
+            e.printStackTrace();
+            setTabLoading(tab, false); // Stays stale; retried when selected
+            startup.reached("first tab shown");
+        });
+    }
+    
+    /**
+     * Start loading one stale hidden tab. Each completed load starts the
+     * next, so prefetching runs one query at a time behind the visible tab
+     * instead of competing with it for connections.
+     */
+    private void prefetchNextTab() {
+        if (!PREFETCH_TABS) {
+            return;
+        }
+        for (int tab = 0; tab < staleTabs.length; tab++) {
+            if (staleTabs[tab]) {
+                if (!loader.isLoading(TAB_KEYS[tab])) {
+                    loadTabData(tab);
+                }
+                return;
+            }
+        }
+    }
+    
+    private void loadTabData(int tab) {
+        switch (tab) {
+            case STUDENTS_TAB: loadStudents(); break;
+            case ATTENDANCE_TAB: loadAttendance(); break;
+            case MARKS_TAB: loadMarks(); break;
+            case FEES_TAB: loadFees(); break;
+            case MATERIALS_TAB: loadMaterials(); break;
+        }
+    }
+    
+    private void setTabLoading(int tab, boolean loading) {
+        tabbedPane.setTitleAt(tab, loading ? TAB_TITLES[tab] + " …" : TAB_TITLES[tab]);
+    }
+    
+    private static void fillModel(DefaultTableModel model, List<Object[]> rows) {
+        model.setRowCount(0);
+        for (Object[] row : rows) {
+            model.addRow(row);
         }
-        initializeUI();
-        loadStatistics();
-        loadStudents();
     }
     
     private void loadStatistics() {
-        try {
-            // Total students
-            String query = "SELECT COUNT(*) as count FROM students WHERE class_name = ? AND teacher_id = ?";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
-            pstmt.setInt(2, teacherId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                totalStudentsLabel.setText(String.valueOf(rs.getInt("count")));
-            }
-            rs.close();
-            pstmt.close();
-
-            // Present today
-            query = "SELECT COUNT(*) as count FROM attendance a " +
-                   "JOIN students s ON a.student_id = s.student_id " +
-                   "WHERE s.class_name = ? AND s.teacher_id = ? " +
-                   "AND a.attendance_date = CURRENT_DATE AND a.status = 'Present'";
-            pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
-            pstmt.setInt(2, teacherId);
-            rs = pstmt.executeQuery();
-            if (rs.next()) {
-                presentTodayLabel.setText(String.valueOf(rs.getInt("count")));
-            }
-            rs.close();
-            pstmt.close();
-
-            // Average marks
-            query = "SELECT AVG((unit1 + unit2 + midterm + final)/4.0) as avg " +
-                   "FROM marks m JOIN students s ON m.student_id = s.student_id " +
-                   "WHERE s.class_name = ? AND s.teacher_id = ?";
-            pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
-            pstmt.setInt(2, teacherId);
-            rs = pstmt.executeQuery();
-            if (rs.next()) {
-                int avg = (int) rs.getDouble("avg");
-                avgMarksLabel.setText(avg + "%");
-            }
-            rs.close();
-            pstmt.close();
-
-            // Fee pending
-            query = "SELECT COUNT(*) as count FROM fees f " +
-                   "JOIN students s ON f.student_id = s.student_id " +
-                   "WHERE s.class_name = ? AND s.teacher_id = ? AND f.status = 'Pending'";
-            pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
-            pstmt.setInt(2, teacherId);
-            rs = pstmt.executeQuery();
-            if (rs.next()) {
-                feePendingLabel.setText(String.valueOf(rs.getInt("count")));
+        final String className = currentClass;
+        ClassStats cached = STATS_CACHE.get(statsKey(className));
+        if (cached != null) {
+            showStatistics(cached);
+            startup.reached("statistics shown");
+            return;
+        }
+        
+        // Last session's numbers, if any, stay up until the fresh ones arrive
+        TeacherSnapshot.ClassData lastKnown = snapshot.get(className);
+        if (lastKnown == null || lastKnown.stats == null) {
+            for (JLabel label : new JLabel[]{totalStudentsLabel, presentTodayLabel, avgMarksLabel, feePendingLabel}) {
+                label.setText("…");
             }
-            rs.close();
-            pstmt.close();
-
-        } catch (SQLException e) {
+        }
+        
+        loader.submit("statistics",
+            () -> startup.take("statistics:" + className, () -> ClassStats.fetch(teacherId, className)), stats -> {
+            STATS_CACHE.put(statsKey(className), stats);
+            snapshot.putStats(className, stats);
+            showStatistics(stats);
+            startup.reached("statistics shown");
+        }, e -> {
             e.printStackTrace();
+            for (JLabel label : new JLabel[]{totalStudentsLabel, presentTodayLabel, avgMarksLabel, feePendingLabel}) {
+                label.setText("-");
+            }
+            startup.reached("statistics shown");
+        });
+    }
+    
+    private void showStatistics(ClassStats stats) {
+        totalStudentsLabel.setText(String.valueOf(stats.totalStudents));
+        presentTodayLabel.setText(String.valueOf(stats.presentToday));
+        avgMarksLabel.setText(stats.getAverageMarks() + "%");
+        feePendingLabel.setText(String.valueOf(stats.feesPending));
+    }
+    
+    /**
+     * Apply a write's effect to the cached statistics for a class. Falls back
+     * to a reload if nothing is cached for it any more.
+     */
+    private void updateStatistics(String className, Consumer<ClassStats> change) {
+        if (!STATS_CACHE.update(statsKey(className), change)) {
+            STATS_CACHE.invalidate(statsKey(className));
+        }
+        if (className.equals(currentClass)) {
+            loadStatistics();
         }
     }
+    
+    private String statsKey(String className) {
+        return teacherId + ":" + className;
+    }
+    
+    /**
+     * Size and hit rate of the statistics and roster caches, for tuning them
+     */
+    public static String describeCaches() {
+        return "Statistics cache: " + STATS_CACHE.describe() + "\n" +
+               "Roster cache: " + ROSTER_CACHE.describe();
+    }
 
     public static void main(String[] args) {
         javax.swing.SwingUtilities.invokeLater(new Runnable() {
@@ -537,183 +928,186 @@ public class TeacherFrame extends JFrame {
     
     
     private void loadStudents() {
-        try {
-            studentsModel.setRowCount(0);
-            
-            String query = "SELECT * FROM students WHERE class_name = ? AND teacher_id = ? ORDER BY roll_no";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
-            pstmt.setInt(2, teacherId);
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                studentsModel.addRow(new Object[]{
-                    rs.getString("roll_no"),
-                    rs.getString("full_name"),
-                    rs.getInt("age"),
-                    rs.getString("father_name"),
-                    rs.getString("phone"),
-                    rs.getString("email"),
-                    "Actions"
-                });
+        final String className = currentClass;
+        loadTab(STUDENTS_TAB,
+            () -> ROSTER_CACHE.get(teacherId, className, RosterCache.STUDENTS,
+                () -> startup.take("students:" + className, () -> StudentsTableModel.fetchIndex(teacherId, className))),
+            index -> studentsModel.reset(index));
+    }
+    
+    private void loadAttendance() {
+        final String className = currentClass;
+        loadTab(ATTENDANCE_TAB,
+            () -> ROSTER_CACHE.get(teacherId, className, RosterCache.ATTENDANCE,
+                () -> fetchAttendance(teacherId, className, null)),
+            rows -> {
+                fillModel(attendanceModel, rows);
+                attendanceClass = className;
+                attendanceQueue.clearFailures(className);
+                overlayQueuedAttendance(className);
+            });
+    }
+    
+    /**
+     * Marks not yet written still win over what the database returned
+     */
+    private void overlayQueuedAttendance(String className) {
+        for (int row = 0; row < attendanceModel.getRowCount(); row++) {
+            String queued = attendanceQueue.pendingStatus(className, (Integer) attendanceModel.getValueAt(row, ID_COLUMN));
+            if (queued != null) {
+                attendanceModel.setValueAt(queued, row, 2);
             }
-            
-            DatabaseConfig.closeResources(rs, pstmt);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
     
-    private void loadAttendance() {
-        try {
-            attendanceModel.setRowCount(0);
-            
-            String query = "SELECT s.student_id, s.roll_no, s.full_name, " +
-                          "COALESCE(a.status, 'Absent') as status " +
-                          "FROM students s " +
-                          "LEFT JOIN attendance a ON s.student_id = a.student_id " +
-                          "AND a.attendance_date = CURRENT_DATE " +
-                          "WHERE s.class_name = ? AND s.teacher_id = ? " +
-                          "ORDER BY s.roll_no";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
+    // Static, like the other fetchers, so DataAccessBenchmark times exactly what the tab runs
+    static List<Object[]> fetchAttendance(int teacherId, String className, Integer[] onlyStudents) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        String query = onlyStudents == null ? ATTENDANCE_SQL : onlyStudents(ATTENDANCE_SQL);
+        
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(query)) {
+            pstmt.setString(1, className);
             pstmt.setInt(2, teacherId);
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                attendanceModel.addRow(new Object[]{
-                    rs.getString("roll_no"),
-                    rs.getString("full_name"),
-                    rs.getString("status"),
-                    "Actions"
-                });
+            if (onlyStudents != null) {
+                pstmt.setArray(3, pstmt.getConnection().createArrayOf("integer", onlyStudents));
             }
             
-            DatabaseConfig.closeResources(rs, pstmt);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{
+                        rs.getString("roll_no"),
+                        rs.getString("full_name"),
+                        rs.getString("status"),
+                        "Actions",
+                        rs.getInt("student_id")
+                    });
+                }
+            }
         }
+        return rows;
     }
     
     private void loadMarks() {
-        try {
-            marksModel.setRowCount(0);
-            
-            String query = "SELECT s.student_id, s.roll_no, s.full_name, " +
-                          "COALESCE(m.unit1, 0) as unit1, COALESCE(m.unit2, 0) as unit2, " +
-                          "COALESCE(m.midterm, 0) as midterm, COALESCE(m.final, 0) as final " +
-                          "FROM students s " +
-                          "LEFT JOIN marks m ON s.student_id = m.student_id " +
-                          "WHERE s.class_name = ? AND s.teacher_id = ? " +
-                          "ORDER BY s.roll_no";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
+        final String className = currentClass;
+        loadTab(MARKS_TAB,
+            () -> ROSTER_CACHE.get(teacherId, className, RosterCache.MARKS,
+                () -> fetchMarks(teacherId, className, null)),
+            rows -> marksModel.loadRows(rows));
+    }
+    
+    static List<Object[]> fetchMarks(int teacherId, String className, Integer[] onlyStudents) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        String query = onlyStudents == null ? MARKS_SQL : onlyStudents(MARKS_SQL);
+        
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(query)) {
+            pstmt.setString(1, className);
             pstmt.setInt(2, teacherId);
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                int unit1 = rs.getInt("unit1");
-                int unit2 = rs.getInt("unit2");
-                int midterm = rs.getInt("midterm");
-                int finalMark = rs.getInt("final");
-                int total = unit1 + unit2 + midterm + finalMark;
-                String grade = calculateGrade((int)(total / 4.0));
-                
-                marksModel.addRow(new Object[]{
-                    rs.getString("roll_no"),
-                    rs.getString("full_name"),
-                    unit1,
-                    unit2,
-                    midterm,
-                    finalMark,
-                    total + "/400",
-                    grade
-                });
+            if (onlyStudents != null) {
+                pstmt.setArray(3, pstmt.getConnection().createArrayOf("integer", onlyStudents));
             }
             
-            DatabaseConfig.closeResources(rs, pstmt);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int unit1 = rs.getInt("unit1");
+                    int unit2 = rs.getInt("unit2");
+                    int midterm = rs.getInt("midterm");
+                    int finalMark = rs.getInt("final");
+                    int total = unit1 + unit2 + midterm + finalMark;
+                    String grade = MarksTableModel.calculateGrade((int)(total / 4.0));
+                    
+                    rows.add(new Object[]{
+                        rs.getString("roll_no"),
+                        rs.getString("full_name"),
+                        unit1,
+                        unit2,
+                        midterm,
+                        finalMark,
+                        total + "/400",
+                        grade,
+                        rs.getInt("student_id")
+                    });
+                }
+            }
         }
+        return rows;
     }
     
     private void loadFees() {
-        try {
-            feesModel.setRowCount(0);
-            
-            String query = "SELECT s.student_id, s.roll_no, s.full_name, " +
-                          "COALESCE(f.amount, 5000.00) as amount, " +
-                          "COALESCE(f.status, 'Pending') as status " +
-                          "FROM students s " +
-                          "LEFT JOIN fees f ON s.student_id = f.student_id " +
-                          "AND f.month = 'January' AND f.year = 2024 " +
-                          "WHERE s.class_name = ? AND s.teacher_id = ? " +
-                          "ORDER BY s.roll_no";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, currentClass);
+        final String className = currentClass;
+        loadTab(FEES_TAB,
+            () -> ROSTER_CACHE.get(teacherId, className, RosterCache.FEES,
+                () -> fetchFees(teacherId, className, null)),
+            rows -> fillModel(feesModel, rows));
+    }
+    
+    static List<Object[]> fetchFees(int teacherId, String className, Integer[] onlyStudents) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        String query = onlyStudents == null ? FEES_SQL : onlyStudents(FEES_SQL);
+        
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(query)) {
+            pstmt.setString(1, className);
             pstmt.setInt(2, teacherId);
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                feesModel.addRow(new Object[]{
-                    rs.getString("roll_no"),
-                    rs.getString("full_name"),
-                    "₹" + rs.getDouble("amount"),
-                    rs.getString("status"),
-                    "Actions"
-                });
+            if (onlyStudents != null) {
+                pstmt.setArray(3, pstmt.getConnection().createArrayOf("integer", onlyStudents));
             }
             
-            DatabaseConfig.closeResources(rs, pstmt);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{
+                        rs.getString("roll_no"),
+                        rs.getString("full_name"),
+                        "₹" + rs.getDouble("amount"),
+                        rs.getString("status"),
+                        "Actions",
+                        rs.getInt("student_id")
+                    });
+                }
+            }
         }
+        return rows;
     }
     
-    private void loadMaterials(JPanel grid) {
-        try {
-            grid.removeAll();
-            
-            String query = "SELECT * FROM study_materials " +
-                          "WHERE teacher_id = ? AND class_name = ? " +
-                          "ORDER BY upload_date DESC";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
+    /**
+     * A tab query limited to the students bound as its third parameter (an int array)
+     */
+    static String onlyStudents(String query) {
+        return query.replace(" ORDER BY s.roll_no", " AND s.student_id = ANY(?) ORDER BY s.roll_no");
+    }
+    
+    private void loadMaterials() {
+        final String className = currentClass;
+        loadTab(MATERIALS_TAB,
+            () -> ROSTER_CACHE.get(teacherId, className, RosterCache.MATERIALS, () -> fetchMaterials(className)), rows -> {
+            materialsGrid.removeAll();
+            for (Object[] row : rows) {
+                materialsGrid.add(createMaterialCard(
+                    (Integer) row[0], (String) row[1], (String) row[2],
+                    (String) row[3], (String) row[4]));
+            }
+            materialsGrid.revalidate();
+            materialsGrid.repaint();
+        });
+    }
+    
+    private List<Object[]> fetchMaterials(String className) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(MATERIALS_SQL)) {
             pstmt.setInt(1, teacherId);
-            pstmt.setString(2, currentClass);
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                JPanel materialCard = createMaterialCard(
-                    rs.getInt("material_id"),
-                    rs.getString("title"),
-                    rs.getString("description"),
-                    rs.getString("material_type"),
-                    rs.getString("upload_date")
-                );
-                grid.add(materialCard);
+            pstmt.setString(2, className);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{
+                        rs.getInt("material_id"),
+                        rs.getString("title"),
+                        rs.getString("description"),
+                        rs.getString("material_type"),
+                        rs.getString("upload_date")
+                    });
+                }
             }
-            
-            DatabaseConfig.closeResources(rs, pstmt);
-            
-            grid.revalidate();
-            grid.repaint();
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        return rows;
     }
     
     private JPanel createMaterialCard(int materialId, String title, String description,
@@ -804,13 +1198,13 @@ public class TeacherFrame extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
         
         saveBtn.addActionListener(e -> {
-            if (addStudent(nameField.getText(), rollNoField.getText(),
-                          Integer.parseInt(ageField.getText()),
-                          fatherNameField.getText(), phoneField.getText(),
-                          emailField.getText(), addressArea.getText())) {
+            addStudent(nameField.getText(), rollNoField.getText(),
+                      Integer.parseInt(ageField.getText()),
+                      fatherNameField.getText(), phoneField.getText(),
+                      emailField.getText(), addressArea.getText(), () -> {
                 dialog.dispose();
                 refreshAllData();
-            }
+            });
         });
         
         cancelBtn.addActionListener(e -> dialog.dispose());
@@ -822,38 +1216,89 @@ public class TeacherFrame extends JFrame {
         dialog.setVisible(true);
     }
     
-    private boolean addStudent(String name, String rollNo, int age,
-                               String fatherName, String phone, String email, String address) {
-        try {
-            String query = "INSERT INTO students (roll_no, full_name, age, class_name, " +
-                          "father_name, phone, email, address, teacher_id) " +
-                          "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, rollNo);
-            pstmt.setString(2, name);
-            pstmt.setInt(3, age);
-            pstmt.setString(4, currentClass);
-            pstmt.setString(5, fatherName);
-            pstmt.setString(6, phone);
-            pstmt.setString(7, email);
-            pstmt.setString(8, address);
-            pstmt.setInt(9, teacherId);
-            
-            pstmt.executeUpdate();
-            pstmt.close();
-            
+    private void addStudent(String name, String rollNo, int age, String fatherName,
+                            String phone, String email, String address, Runnable onSaved) {
+        final String className = currentClass;
+        loader.run(() -> {
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(ADD_STUDENT_SQL)) {
+                pstmt.setString(1, rollNo);
+                pstmt.setString(2, name);
+                pstmt.setInt(3, age);
+                pstmt.setString(4, className);
+                pstmt.setString(5, fatherName);
+                pstmt.setString(6, phone);
+                pstmt.setString(7, email);
+                pstmt.setString(8, address);
+                pstmt.setInt(9, teacherId);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    return rs.getInt("student_id");
+                }
+            }
+        }, studentId -> {
+            ROSTER_CACHE.invalidateClass(teacherId, className);
+            attendanceHistory.remove(className);
+            updateStatistics(className, stats -> stats.totalStudents++);
             JOptionPane.showMessageDialog(this, "Student added successfully!");
-            return true;
-            
-        } catch (SQLException e) {
+            onSaved.run();
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
                 "Error adding student: " + e.getMessage(),
                 "Database Error",
                 JOptionPane.ERROR_MESSAGE);
-            return false;
+        });
+    }
+    
+    /**
+     * Bulk-add students to the current class from a CSV file
+     */
+    private void importStudents() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Students (roll_no, full_name, age, father_name, phone, email, address)");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        
+        final String className = currentClass;
+        final Path file = chooser.getSelectedFile().toPath();
+        setTabLoading(STUDENTS_TAB, true);
+        loader.run(() -> StudentImporter.importCsv(teacherId, className, file), result -> {
+            setTabLoading(STUDENTS_TAB, false);
+            if (result.getImported() > 0) {
+                ROSTER_CACHE.invalidateClass(teacherId, className);
+                attendanceHistory.remove(className);
+                updateStatistics(className, stats -> stats.totalStudents += result.getImported());
+                if (className.equals(currentClass)) {
+                    refreshAllData();
+                }
+            }
+            
+            StringBuilder message = new StringBuilder()
+                .append("Imported ").append(result.getImported()).append(" of ")
+                .append(result.getRowsRead()).append(" row(s) in ")
+                .append(String.format("%.2f", result.getSeconds())).append(" s (")
+                .append(result.getRowsPerSecond()).append(" rows/sec).");
+            if (!result.getRejects().isEmpty()) {
+                message.append("\n\n").append(result.getRejects().size()).append(" row(s) rejected:\n");
+                for (Map.Entry<Long, String> reject : result.getRejects().entrySet()) {
+                    message.append("\nLine ").append(reject.getKey()).append(": ").append(reject.getValue());
+                }
+            }
+            JTextArea report = new JTextArea(message.toString(), 12, 50);
+            report.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(report), "Student Import",
+                result.getRejects().isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        }, e -> {
+            e.printStackTrace();
+            setTabLoading(STUDENTS_TAB, false);
+            JOptionPane.showMessageDialog(this,
+                "Error importing students: " + e.getMessage(),
+                "Import Error",
+                JOptionPane.ERROR_MESSAGE);
+        });
     }
     
     public void editStudent(int row) {
@@ -881,175 +1326,238 @@ public class TeacherFrame extends JFrame {
         dialog.setVisible(true);
     }
     
+    /**
+     * Show the new status at once and queue it for the next batch write
+     */
     public void markAttendance(int row, String status) {
-        try {
-            String rollNo = (String) attendanceModel.getValueAt(row, 0);
-            
-            // Get student ID
-            String query = "SELECT student_id FROM students WHERE roll_no = ?";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, rollNo);
-            ResultSet rs = pstmt.executeQuery();
-            
-            int studentId = 0;
-            if (rs.next()) {
-                studentId = rs.getInt("student_id");
+        int studentId = (Integer) attendanceModel.getValueAt(row, ID_COLUMN);
+        String shownStatus = (String) attendanceModel.getValueAt(row, 2);
+        attendanceModel.setValueAt(status, row, 2);
+        attendanceQueue.mark(attendanceClass, studentId, status, shownStatus);
+    }
+    
+    private void markAllPresent() {
+        for (int row = 0; row < attendanceModel.getRowCount(); row++) {
+            markAttendance(row, "Present");
+        }
+        attendanceQueue.flush();
+        
+        // Rows whose write fails are flagged in the table
+        JOptionPane.showMessageDialog(this, "All students marked present!");
+    }
+    
+    /**
+     * A batch of attendance marks reached the database (or failed): adjust
+     * the cached counts for what was saved and repaint the row markers
+     */
+    private void attendanceFlushed(List<AttendanceWriteQueue.Change> saved,
+                                   List<AttendanceWriteQueue.Change> failed) {
+        Map<String, Integer> presentDelta = new HashMap<>();
+        for (AttendanceWriteQueue.Change change : saved) {
+            int delta = ("Present".equals(change.status) ? 1 : 0) - ("Present".equals(change.previousStatus) ? 1 : 0);
+            presentDelta.merge(change.className, delta, Integer::sum);
+        }
+        if (savedDuringHistoryLoad != null) {
+            savedDuringHistoryLoad.addAll(saved);
+        }
+        for (AttendanceWriteQueue.Change change : saved) {
+            AttendanceHistory history = attendanceHistory.get(change.className);
+            if (history != null && !history.record(change.studentId, change.date, change.status)) {
+                attendanceHistory.remove(change.className); // A student it doesn't know; reload when next viewed
             }
-            rs.close();
-            pstmt.close();
-            
-            // Insert or update attendance
-            query = "INSERT INTO attendance (student_id, attendance_date, status, marked_by) " +
-                   "VALUES (?, CURRENT_DATE, ?, ?) " +
-                   "ON CONFLICT (student_id, attendance_date) " +
-                   "DO UPDATE SET status = ?, marked_by = ?";
-            
-            pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setInt(1, studentId);
-            pstmt.setString(2, status);
-            pstmt.setInt(3, teacherId);
-            pstmt.setString(4, status);
-            pstmt.setInt(5, teacherId);
-            
-            pstmt.executeUpdate();
-            pstmt.close();
-            
-            loadAttendance();
-            loadStatistics();
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        if (historyDialog != null && historyDialog.isDisplayable()
+                && attendanceHistory.get(historyDialog.getHistory().getClassName()) == historyDialog.getHistory()) {
+            historyDialog.refresh();
+        }
+        for (Map.Entry<String, Integer> entry : presentDelta.entrySet()) {
+            ROSTER_CACHE.invalidate(teacherId, entry.getKey(), RosterCache.ATTENDANCE);
+            int delta = entry.getValue();
+            if (delta != 0) {
+                updateStatistics(entry.getKey(), stats -> stats.presentToday += delta);
+            }
+        }
+        attendanceTable.repaint();
     }
     
-    private void markAllPresent() {
-        try {
-            String query = "INSERT INTO attendance (student_id, attendance_date, status, marked_by) " +
-                          "SELECT s.student_id, CURRENT_DATE, 'Present', ? " +
-                          "FROM students s WHERE s.class_name = ? AND s.teacher_id = ? " +
-                          "ON CONFLICT (student_id, attendance_date) " +
-                          "DO UPDATE SET status = 'Present', marked_by = ?";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setInt(1, teacherId);
-            pstmt.setString(2, currentClass);
-            pstmt.setInt(3, teacherId);
-            pstmt.setInt(4, teacherId);
-            
-            pstmt.executeUpdate();
-            pstmt.close();
-            
-            loadAttendance();
-            loadStatistics();
-            
-            JOptionPane.showMessageDialog(this, "All students marked present!");
-            
-        } catch (SQLException e) {
+    /**
+     * Open the attendance history of the current class, loading it first
+     * if this is the first time it is viewed
+     */
+    private void showAttendanceHistory() {
+        final String className = currentClass;
+        AttendanceHistory cached = attendanceHistory.get(className);
+        if (cached != null) {
+            openHistoryDialog(cached);
+            return;
+        }
+        attendanceQueue.flush();
+        List<AttendanceWriteQueue.Change> savedMeanwhile = new ArrayList<>();
+        savedDuringHistoryLoad = savedMeanwhile;
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        loader.submit("attendanceHistory", () -> AttendanceHistory.fetch(teacherId, className), history -> {
+            setCursor(Cursor.getDefaultCursor());
+            savedDuringHistoryLoad = null;
+            // The load may have read before these were committed; recording one twice is harmless.
+            // Marks still unsaved are recorded by attendanceFlushed once this history is cached.
+            boolean complete = true;
+            for (AttendanceWriteQueue.Change change : savedMeanwhile) {
+                if (change.className.equals(className)) {
+                    complete &= history.record(change.studentId, change.date, change.status);
+                }
+            }
+            if (complete) {
+                attendanceHistory.put(className, history);
+            } // Otherwise a student it doesn't know; shown as is and reloaded when next viewed
+            openHistoryDialog(history);
+        }, e -> {
+            setCursor(Cursor.getDefaultCursor());
+            savedDuringHistoryLoad = null;
             e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error loading attendance history: " + e.getMessage(),
+                "Database Error",
+                JOptionPane.ERROR_MESSAGE);
+        });
+    }
+    
+    private void openHistoryDialog(AttendanceHistory history) {
+        if (historyDialog != null) {
+            historyDialog.dispose();
+        }
+        historyDialog = new AttendanceHistoryDialog(this, history);
+        historyDialog.setVisible(true);
+    }
+    
+    // A cleared cell of the Integer-typed mark columns holds null
+    private boolean hasEmptyMark(int row) {
+        for (int c = MarksTableModel.FIRST_MARK_COLUMN; c <= MarksTableModel.LAST_MARK_COLUMN; c++) {
+            if (marksModel.getValueAt(row, c) == null) {
+                return true;
+            }
         }
+        return false;
     }
     
     private void saveAllMarks() {
-        try {
-            for (int i = 0; i < marksModel.getRowCount(); i++) {
-                String rollNo = (String) marksModel.getValueAt(i, 0);
-                int unit1 = Integer.parseInt(marksModel.getValueAt(i, 2).toString());
-                int unit2 = Integer.parseInt(marksModel.getValueAt(i, 3).toString());
-                int midterm = Integer.parseInt(marksModel.getValueAt(i, 4).toString());
-                int finalMark = Integer.parseInt(marksModel.getValueAt(i, 5).toString());
-                
-                // Get student ID
-                String query = "SELECT student_id FROM students WHERE roll_no = ?";
-                PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-                pstmt.setString(1, rollNo);
-                ResultSet rs = pstmt.executeQuery();
-                
-                int studentId = 0;
-                if (rs.next()) {
-                    studentId = rs.getInt("student_id");
-                }
-                rs.close();
-                pstmt.close();
-                
-                // Insert or update marks
-                query = "INSERT INTO marks (student_id, unit1, unit2, midterm, final, updated_by) " +
-                       "VALUES (?, ?, ?, ?, ?, ?) " +
-                       "ON CONFLICT (student_id) " +
-                       "DO UPDATE SET unit1 = ?, unit2 = ?, midterm = ?, final = ?, updated_by = ?";
-                
-                pstmt = DatabaseConfig.prepareStatement(query);
-                pstmt.setInt(1, studentId);
-                pstmt.setInt(2, unit1);
-                pstmt.setInt(3, unit2);
-                pstmt.setInt(4, midterm);
-                pstmt.setInt(5, finalMark);
-                pstmt.setInt(6, teacherId);
-                pstmt.setInt(7, unit1);
-                pstmt.setInt(8, unit2);
-                pstmt.setInt(9, midterm);
-                pstmt.setInt(10, finalMark);
-                pstmt.setInt(11, teacherId);
-                
-                pstmt.executeUpdate();
-                pstmt.close();
+        if (marksTable.isEditing()) {
+            marksTable.getCellEditor().stopCellEditing();
+        }
+        if (!marksModel.hasChanges()) {
+            JOptionPane.showMessageDialog(this, "No changes to save.");
+            return;
+        }
+        
+        // Read only the edited rows on the EDT; rows with unparseable marks are reported, not sent
+        List<MarksBatchWriter.MarkRow> rows = new ArrayList<>();
+        Map<Integer, String> invalid = new LinkedHashMap<>();
+        Map<Integer, String> rollNos = new HashMap<>();
+        Map<Integer, Double> previousAverage = new HashMap<>();
+        for (int i : marksModel.getDirtyRows()) {
+            int studentId = (Integer) marksModel.getValueAt(i, MarksTableModel.ID_COLUMN);
+            rollNos.put(studentId, (String) marksModel.getValueAt(i, 0));
+            previousAverage.put(studentId, averageOf(marksModel.getOriginalMarks(i)));
+            if (hasEmptyMark(i)) {
+                invalid.put(studentId, "Every mark must be filled in");
+                continue;
+            }
+            try {
+                rows.add(new MarksBatchWriter.MarkRow(studentId,
+                    Integer.parseInt(marksModel.getValueAt(i, 2).toString()),
+                    Integer.parseInt(marksModel.getValueAt(i, 3).toString()),
+                    Integer.parseInt(marksModel.getValueAt(i, 4).toString()),
+                    Integer.parseInt(marksModel.getValueAt(i, 5).toString())));
+            } catch (NumberFormatException e) {
+                invalid.put(studentId, "Marks must be whole numbers");
             }
+        }
+        
+        final String className = currentClass;
+        loader.run(() -> MarksBatchWriter.saveAll(teacherId, className, rows), result -> {
+            Map<Integer, String> failures = new LinkedHashMap<>(invalid);
+            failures.putAll(result.getFailures());
             
-            JOptionPane.showMessageDialog(this, "All marks saved successfully!");
-            loadMarks();
-            loadStatistics();
+            // Saved rows are clean again; Total and Grade are already current, so no reload
+            List<MarksBatchWriter.MarkRow> saved = new ArrayList<>();
+            for (MarksBatchWriter.MarkRow row : rows) {
+                if (!failures.containsKey(row.studentId)) {
+                    saved.add(row);
+                }
+            }
+            marksModel.markSaved(saved);
+            ROSTER_CACHE.invalidate(teacherId, className, RosterCache.MARKS);
+            
+            updateStatistics(className, stats -> {
+                for (MarksBatchWriter.MarkRow row : saved) {
+                    double average = (row.unit1 + row.unit2 + row.midterm + row.finalMark) / 4.0;
+                    if (result.getInserted().contains(row.studentId)) {
+                        stats.marksSum += average;
+                        stats.marksCount++;
+                    } else {
+                        stats.marksSum += average - previousAverage.get(row.studentId);
+                    }
+                }
+            });
             
-        } catch (SQLException | NumberFormatException e) {
+            if (failures.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "All marks saved successfully!");
+            } else {
+                StringBuilder message = new StringBuilder()
+                    .append("Saved ").append(result.getSaved()).append(" row(s). ")
+                    .append(failures.size()).append(" row(s) were not saved:\n");
+                for (Map.Entry<Integer, String> failure : failures.entrySet()) {
+                    message.append("\nRoll ").append(rollNos.get(failure.getKey()))
+                           .append(": ").append(failure.getValue());
+                }
+                JOptionPane.showMessageDialog(this, message.toString(),
+                    "Some Marks Not Saved", JOptionPane.WARNING_MESSAGE);
+            }
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
                 "Error saving marks: " + e.getMessage(),
                 "Error",
                 JOptionPane.ERROR_MESSAGE);
+        });
+    }
+    
+    private static double averageOf(Object[] marks) {
+        double sum = 0;
+        for (Object mark : marks) {
+            sum += mark instanceof Number ? ((Number) mark).doubleValue() : 0;
         }
+        return sum / 4.0;
     }
     
     public void toggleFeeStatus(int row) {
-        try {
-            String rollNo = (String) feesModel.getValueAt(row, 0);
-            String currentStatus = (String) feesModel.getValueAt(row, 3);
-            String newStatus = currentStatus.equals("Paid") ? "Pending" : "Paid";
-            
-            // Get student ID
-            String query = "SELECT student_id FROM students WHERE roll_no = ?";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setString(1, rollNo);
-            ResultSet rs = pstmt.executeQuery();
-            
-            int studentId = 0;
-            if (rs.next()) {
-                studentId = rs.getInt("student_id");
-            }
-            rs.close();
-            pstmt.close();
-            
+        int studentId = (Integer) feesModel.getValueAt(row, ID_COLUMN);
+        String currentStatus = (String) feesModel.getValueAt(row, 3);
+        String newStatus = currentStatus.equals("Paid") ? "Pending" : "Paid";
+        final String className = currentClass;
+        
+        loader.run(() -> {
             // Update fee status
-            query = "INSERT INTO fees (student_id, month, year, status, payment_date) " +
-                   "VALUES (?, 'January', 2024, ?, ?) " +
-                   "ON CONFLICT (student_id, month, year) " +
-                   "DO UPDATE SET status = ?, payment_date = ?";
-            
             Date paymentDate = newStatus.equals("Paid") ? new Date(System.currentTimeMillis()) : null;
             
-            pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setInt(1, studentId);
-            pstmt.setString(2, newStatus);
-            pstmt.setDate(3, paymentDate);
-            pstmt.setString(4, newStatus);
-            pstmt.setDate(5, paymentDate);
-            
-            pstmt.executeUpdate();
-            pstmt.close();
-            
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(FEE_STATUS_SQL)) {
+                pstmt.setInt(1, studentId);
+                pstmt.setString(2, newStatus);
+                pstmt.setDate(3, paymentDate);
+                pstmt.setString(4, newStatus);
+                pstmt.setDate(5, paymentDate);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() && rs.getBoolean("inserted");
+                }
+            }
+        }, inserted -> {
+            // Only rows in the fees table count as pending; a new row adds one only if Pending
+            boolean nowPending = newStatus.equals("Pending");
+            int delta = inserted ? (nowPending ? 1 : 0) : (nowPending ? 1 : -1);
+            updateStatistics(className, stats -> stats.feesPending += delta);
+            ROSTER_CACHE.invalidate(teacherId, className, RosterCache.FEES);
             loadFees();
-            loadStatistics();
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        }, Throwable::printStackTrace);
     }
     
     private void showAddMaterialDialog() {
@@ -1077,13 +1585,11 @@ public class TeacherFrame extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
         
         saveBtn.addActionListener(e -> {
-            if (addMaterial(titleField.getText(), (String)typeCombo.getSelectedItem(),
-                          descArea.getText())) {
+            addMaterial(titleField.getText(), (String)typeCombo.getSelectedItem(),
+                       descArea.getText(), () -> {
                 dialog.dispose();
-                JPanel materialsGrid = (JPanel)((JScrollPane)((JPanel)tabbedPane.getComponentAt(4))
-                    .getComponent(1)).getViewport().getView();
-                loadMaterials(materialsGrid);
-            }
+                loadMaterials();
+            });
         });
         
         cancelBtn.addActionListener(e -> dialog.dispose());
@@ -1095,62 +1601,192 @@ public class TeacherFrame extends JFrame {
         dialog.setVisible(true);
     }
     
-    private boolean addMaterial(String title, String type, String description) {
-        try {
-            String query = "INSERT INTO study_materials (teacher_id, title, description, " +
-                          "material_type, class_name) VALUES (?, ?, ?, ?, ?)";
-            
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setInt(1, teacherId);
-            pstmt.setString(2, title);
-            pstmt.setString(3, description);
-            pstmt.setString(4, type);
-            pstmt.setString(5, currentClass);
-            
-            pstmt.executeUpdate();
-            pstmt.close();
-            
+    private void addMaterial(String title, String type, String description, Runnable onSaved) {
+        final String className = currentClass;
+        loader.run(() -> {
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(ADD_MATERIAL_SQL)) {
+                pstmt.setInt(1, teacherId);
+                pstmt.setString(2, title);
+                pstmt.setString(3, description);
+                pstmt.setString(4, type);
+                pstmt.setString(5, className);
+                
+                return pstmt.executeUpdate();
+            }
+        }, inserted -> {
+            ROSTER_CACHE.invalidate(teacherId, className, RosterCache.MATERIALS);
             JOptionPane.showMessageDialog(this, "Material added successfully!");
-            return true;
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+            onSaved.run();
+        }, Throwable::printStackTrace);
     }
     
     private void deleteMaterial(int materialId) {
-        try {
-            String query = "DELETE FROM study_materials WHERE material_id = ?";
-            PreparedStatement pstmt = DatabaseConfig.prepareStatement(query);
-            pstmt.setInt(1, materialId);
-            pstmt.executeUpdate();
-            pstmt.close();
-            
-            JPanel materialsGrid = (JPanel)((JScrollPane)((JPanel)tabbedPane.getComponentAt(4))
-                .getComponent(1)).getViewport().getView();
-            loadMaterials(materialsGrid);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        final String className = currentClass;
+        loader.run(() -> {
+            try (PreparedStatement pstmt = DatabaseConfig.prepareStatement(DELETE_MATERIAL_SQL)) {
+                pstmt.setInt(1, materialId);
+                return pstmt.executeUpdate();
+            }
+        }, deleted -> {
+            ROSTER_CACHE.invalidate(teacherId, className, RosterCache.MATERIALS);
+            loadMaterials();
+        }, Throwable::printStackTrace);
     }
     
+    /**
+     * Reload for the current class: statistics and the visible tab now,
+     * the other tabs in the background (or when first selected)
+     */
     private void refreshAllData() {
+        Arrays.fill(staleTabs, true);
         loadStatistics();
-        loadStudents();
-        loadAttendance();
-        loadMarks();
-        loadFees();
-    }
-    
-    private String calculateGrade(int marks) {
-        if (marks >= 90) return "A+";
-        if (marks >= 80) return "A";
-        if (marks >= 70) return "B+";
-        if (marks >= 60) return "B";
-        if (marks >= 50) return "C";
-        return "F";
+        loadTabData(tabbedPane.getSelectedIndex());
+    }
+    
+    /**
+     * Another client changed a row belonging to this teacher: drop what is
+     * cached for its class, and if it is the class on screen, schedule a
+     * refresh of just the affected rows (or tab)
+     */
+    private void onRemoteChange(ChangeFeed.Change change) {
+        if (change.teacherId != teacherId || change.className == null) {
+            return;
+        }
+        int tab = Arrays.asList(TAB_KEYS).indexOf(rosterKind(change.table));
+        if (tab < 0) {
+            return;
+        }
+        
+        String className = change.className;
+        if (tab == STUDENTS_TAB) {
+            ROSTER_CACHE.invalidateClass(teacherId, className);
+        } else {
+            ROSTER_CACHE.invalidate(teacherId, className, TAB_KEYS[tab]);
+        }
+        if (tab == STUDENTS_TAB || tab == ATTENDANCE_TAB) {
+            attendanceHistory.remove(className); // Reloaded when next viewed
+        }
+        boolean affectsStats = tab != MATERIALS_TAB;
+        if (affectsStats) {
+            STATS_CACHE.invalidate(statsKey(className));
+        }
+        if (!className.equals(currentClass)) {
+            return;
+        }
+        
+        if (tab == STUDENTS_TAB) {
+            for (int t = 0; t < TAB_KEYS.length; t++) {
+                if (t != MATERIALS_TAB) {
+                    remoteReloadTabs.add(t);
+                }
+            }
+        } else if (change.studentId == 0 || tab == MATERIALS_TAB) {
+            remoteReloadTabs.add(tab);
+        } else {
+            remoteChangedRows.computeIfAbsent(tab, t -> new HashSet<>()).add(change.studentId);
+        }
+        remoteStatsChanged |= affectsStats;
+        if (!remoteRefresh.isRunning()) {
+            remoteRefresh.start();
+        }
+    }
+    
+    private static String rosterKind(String table) {
+        switch (table) {
+            case "students": return RosterCache.STUDENTS;
+            case "attendance": return RosterCache.ATTENDANCE;
+            case "marks": return RosterCache.MARKS;
+            case "fees": return RosterCache.FEES;
+            case "study_materials": return RosterCache.MATERIALS;
+            default: return null;
+        }
+    }
+    
+    private void applyRemoteChanges() {
+        if (remoteStatsChanged) {
+            remoteStatsChanged = false;
+            loadStatistics();
+        }
+        
+        for (Map.Entry<Integer, Set<Integer>> entry : remoteChangedRows.entrySet()) {
+            int tab = entry.getKey();
+            if (remoteReloadTabs.contains(tab) || staleTabs[tab]) {
+                continue; // A full load is coming anyway
+            }
+            if (entry.getValue().size() > MAX_ROW_REFRESH && !(tab == MARKS_TAB && marksModel.hasChanges())) {
+                remoteReloadTabs.add(tab);
+            } else {
+                refreshRows(tab, entry.getValue().toArray(new Integer[0]));
+            }
+        }
+        remoteChangedRows.clear();
+        
+        for (int tab : remoteReloadTabs) {
+            staleTabs[tab] = true;
+        }
+        remoteReloadTabs.clear();
+        int visible = tabbedPane.getSelectedIndex();
+        if (staleTabs[visible] && !loader.isLoading(TAB_KEYS[visible])) {
+            loadTabData(visible);
+        } else {
+            prefetchNextTab();
+        }
+    }
+    
+    /**
+     * Re-read only the given students' rows of a loaded tab and patch them
+     * in; falls back to reloading the tab if one of them is not shown
+     */
+    private void refreshRows(int tab, Integer[] changed) {
+        final String className = currentClass;
+        loader.run(() -> {
+            switch (tab) {
+                case ATTENDANCE_TAB: return fetchAttendance(teacherId, className, changed);
+                case MARKS_TAB: return fetchMarks(teacherId, className, changed);
+                default: return fetchFees(teacherId, className, changed);
+            }
+        }, rows -> {
+            if (!className.equals(currentClass) || staleTabs[tab]) {
+                return;
+            }
+            boolean patched;
+            if (tab == MARKS_TAB) {
+                patched = marksModel.refreshRows(rows);
+            } else if (tab == ATTENDANCE_TAB) {
+                patched = patchRows(attendanceModel, rows);
+                overlayQueuedAttendance(className);
+            } else {
+                patched = patchRows(feesModel, rows);
+            }
+            if (!patched) {
+                staleTabs[tab] = true;
+                loadTabData(tab);
+            }
+        }, Throwable::printStackTrace);
+    }
+    
+    /**
+     * Replace the rows of the same students; false if one is missing
+     */
+    private static boolean patchRows(DefaultTableModel model, List<Object[]> rows) {
+        for (Object[] fresh : rows) {
+            int row = 0;
+            while (row < model.getRowCount() && !fresh[ID_COLUMN].equals(model.getValueAt(row, ID_COLUMN))) {
+                row++;
+            }
+            if (row == model.getRowCount()) {
+                return false;
+            }
+            for (int c = 0; c < fresh.length; c++) {
+                model.setValueAt(fresh[c], row, c);
+            }
+        }
+        return true;
+    }
+    
+    private static final class TeacherInfo {
+        String name;
+        String[] classes = new String[0];
     }
 
 }
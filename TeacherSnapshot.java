@@ -0,0 +1,369 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a teacher last saw, kept in a local binary file so TeacherFrame can
+ * paint straight away and reconcile with the database afterwards.
+ *
+ * Holds the teacher's name and classes and, per class, the statistics and
+ * the students, attendance, marks and fees lists as they were last loaded.
+ * The file is read through a memory-mapped buffer and written to a
+ * temporary file that then replaces the old one, so a crash never leaves
+ * half a snapshot. Today's attendance is only kept until the day changes.
+ * An unreadable, corrupt or outdated file is ignored. -Dedutrack.snapshots=false
+ * turns this off; -Dedutrack.snapshotDir moves the files (default snapshots).
+ *
+ * Call from the EDT only.
+ */
+public class TeacherSnapshot {
+
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("edutrack.snapshots", "true"));
+    private static final Path DIR = Paths.get(System.getProperty("edutrack.snapshotDir", "snapshots"));
+
+    private static final int MAGIC = 0x45445453; // "EDTS"
+    private static final int VERSION = 3; // 2: pages start at a roll number and student ID; 3: rows end with it
+
+    // Value tags
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte DOUBLE = 3;
+
+    /**
+     * Last-known contents of one class; any part may be missing
+     */
+    static final class ClassData {
+        ClassStats stats;
+        StudentsTableModel.PageIndex students;
+        long attendanceDay;
+        List<Object[]> attendance;
+        List<Object[]> marks;
+        List<Object[]> fees;
+    }
+
+    private final int teacherId;
+    private String teacherName;
+    private String[] classes = new String[0];
+    private final Map<String, ClassData> byClass = new LinkedHashMap<>();
+    private boolean dirty;
+
+    private TeacherSnapshot(int teacherId) {
+        this.teacherId = teacherId;
+    }
+
+    /**
+     * The teacher's snapshot, or an empty one if there is none yet
+     */
+    public static TeacherSnapshot load(int teacherId) {
+        TeacherSnapshot snapshot = new TeacherSnapshot(teacherId);
+        Path file = snapshot.file();
+        if (!ENABLED || !Files.isRegularFile(file)) {
+            return snapshot;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            snapshot.read(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable snapshot " + file + ": " + e);
+            return new TeacherSnapshot(teacherId);
+        }
+        System.out.printf("Snapshot for teacher %d read in %.1f ms%n", teacherId, (System.nanoTime() - start) / 1e6);
+        return snapshot;
+    }
+
+    public String getTeacherName() {
+        return teacherName;
+    }
+
+    public String[] getClasses() {
+        return classes;
+    }
+
+    /**
+     * What was last shown for a class, or null
+     */
+    ClassData get(String className) {
+        ClassData data = byClass.get(className);
+        if (data != null && data.attendance != null && data.attendanceDay != LocalDate.now().toEpochDay()) {
+            data.attendance = null; // Yesterday's attendance is not today's
+        }
+        return data;
+    }
+
+    public void putTeacher(String name, String[] classes) {
+        this.teacherName = name;
+        this.classes = classes.clone();
+        dirty = true;
+    }
+
+    public void putStats(String className, ClassStats stats) {
+        classData(className).stats = stats;
+        dirty = true;
+    }
+
+    /**
+     * Remember a freshly loaded list; kind is one of RosterCache's kinds.
+     * The value is kept as is, so it must not be modified afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    public void put(String className, String kind, Object value) {
+        ClassData data = classData(className);
+        switch (kind) {
+            case RosterCache.STUDENTS:
+                data.students = (StudentsTableModel.PageIndex) value;
+                break;
+            case RosterCache.ATTENDANCE:
+                data.attendance = (List<Object[]>) value;
+                data.attendanceDay = LocalDate.now().toEpochDay();
+                break;
+            case RosterCache.MARKS:
+                data.marks = (List<Object[]>) value;
+                break;
+            case RosterCache.FEES:
+                data.fees = (List<Object[]>) value;
+                break;
+            default:
+                return; // Materials are not kept
+        }
+        dirty = true;
+    }
+
+    /**
+     * Student IDs of the rows that are new or different in after; every
+     * list ends its rows with the student ID, as roll numbers may repeat
+     */
+    static Set<Object> changedKeys(List<Object[]> before, List<Object[]> after) {
+        Map<Object, Object[]> previous = new HashMap<>();
+        for (Object[] row : before) {
+            previous.put(keyOf(row), row);
+        }
+        Set<Object> changed = new HashSet<>();
+        for (Object[] row : after) {
+            if (!Arrays.equals(previous.get(keyOf(row)), row)) {
+                changed.add(keyOf(row));
+            }
+        }
+        return changed;
+    }
+
+    private static Object keyOf(Object[] row) {
+        return row[row.length - 1];
+    }
+
+    /**
+     * Write the snapshot if anything changed since it was loaded or saved
+     */
+    public void save() {
+        if (!ENABLED || !dirty || teacherName == null) {
+            return;
+        }
+        Path file = file();
+        try {
+            Files.createDirectories(DIR);
+            Path tmp = Files.createTempFile(DIR, "teacher-" + teacherId, ".tmp");
+            Files.write(tmp, encode());
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            dirty = false;
+        } catch (IOException e) {
+            // Windows refuses to replace a file that is still mapped; the next save tries again
+            System.err.println("Could not save snapshot " + file + ": " + e);
+        }
+    }
+
+    private Path file() {
+        return DIR.resolve("teacher-" + teacherId + ".bin");
+    }
+
+    private ClassData classData(String className) {
+        return byClass.computeIfAbsent(className, c -> new ClassData());
+    }
+
+    // --- Format: header, teacher, then per class: stats, students index, and the three lists ---
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(teacherId);
+        writeString(out, teacherName);
+        out.writeInt(classes.length);
+        for (String className : classes) {
+            writeString(out, className);
+        }
+
+        out.writeInt(byClass.size());
+        for (Map.Entry<String, ClassData> entry : byClass.entrySet()) {
+            ClassData data = entry.getValue();
+            writeString(out, entry.getKey());
+
+            out.writeBoolean(data.stats != null);
+            if (data.stats != null) {
+                out.writeInt(data.stats.totalStudents);
+                out.writeInt(data.stats.presentToday);
+                out.writeDouble(data.stats.marksSum);
+                out.writeInt(data.stats.marksCount);
+                out.writeInt(data.stats.feesPending);
+            }
+
+            out.writeBoolean(data.students != null);
+            if (data.students != null) {
+                out.writeInt(data.students.rowCount);
+                out.writeInt(data.students.pageStarts.size());
+                for (StudentsTableModel.PageStart start : data.students.pageStarts) {
+                    writeString(out, start.rollNo);
+                    out.writeInt(start.studentId);
+                }
+                writeRows(out, data.students.firstPage);
+            }
+
+            out.writeLong(data.attendanceDay);
+            writeRows(out, data.attendance);
+            writeRows(out, data.marks);
+            writeRows(out, data.fees);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void read(ByteBuffer in) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != teacherId) {
+            throw new IllegalArgumentException("not a version " + VERSION + " snapshot of this teacher");
+        }
+        teacherName = readString(in);
+        classes = new String[readLength(in, in.getInt(), 4)];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = readString(in);
+        }
+
+        int classCount = readLength(in, in.getInt(), 4);
+        for (int c = 0; c < classCount; c++) {
+            String className = readString(in);
+            ClassData data = classData(className);
+
+            if (in.get() != 0) {
+                data.stats = new ClassStats();
+                data.stats.totalStudents = in.getInt();
+                data.stats.presentToday = in.getInt();
+                data.stats.marksSum = in.getDouble();
+                data.stats.marksCount = in.getInt();
+                data.stats.feesPending = in.getInt();
+            }
+
+            if (in.get() != 0) {
+                data.students = new StudentsTableModel.PageIndex(teacherId, className);
+                data.students.rowCount = readLength(in, in.getInt(), 0);
+                int pages = readLength(in, in.getInt(), 8);
+                for (int p = 0; p < pages; p++) {
+                    data.students.pageStarts.add(new StudentsTableModel.PageStart(readString(in), in.getInt()));
+                }
+                data.students.firstPage = readRows(in);
+            }
+
+            data.attendanceDay = in.getLong();
+            data.attendance = readRows(in);
+            data.marks = readRows(in);
+            data.fees = readRows(in);
+        }
+    }
+
+    // A list is its row count (-1 for none), then per row its width and tagged values
+    private static void writeRows(DataOutputStream out, List<Object[]> rows) throws IOException {
+        if (rows == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(rows.size());
+        for (Object[] row : rows) {
+            out.writeShort(row.length);
+            for (Object value : row) {
+                if (value == null) {
+                    out.writeByte(NULL);
+                } else if (value instanceof Integer) {
+                    out.writeByte(INT);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Double) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble((Double) value);
+                } else {
+                    out.writeByte(STRING);
+                    writeString(out, value.toString());
+                }
+            }
+        }
+    }
+
+    private static List<Object[]> readRows(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<Object[]> rows = new ArrayList<>(readLength(in, count, 2));
+        for (int r = 0; r < count; r++) {
+            Object[] row = new Object[readLength(in, in.getShort(), 1)];
+            for (int i = 0; i < row.length; i++) {
+                byte tag = in.get();
+                switch (tag) {
+                    case NULL: break;
+                    case INT: row[i] = in.getInt(); break;
+                    case DOUBLE: row[i] = in.getDouble(); break;
+                    case STRING: row[i] = readString(in); break;
+                    default: throw new IllegalArgumentException("bad value tag " + tag);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readLength(in, in.getInt(), 1)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A count just read, checked against what is left of the buffer (each
+     * item takes at least minBytes), so a corrupt file is rejected before
+     * anything is allocated for it
+     */
+    private static int readLength(ByteBuffer in, int length, int minBytes) {
+        if (length < 0 || (long) length * minBytes > in.remaining()) {
+            throw new IllegalArgumentException("bad length " + length + " at offset " + in.position());
+        }
+        return length;
+    }
+}
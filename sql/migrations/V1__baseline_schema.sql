@@ -0,0 +1,79 @@
+-- EduTrack tables as the application uses them.
+--
+-- Databases set up before migrations existed already have these tables;
+-- IF NOT EXISTS leaves them as they are. The unique keys are the ones the
+-- upserts rely on (ON CONFLICT) and double as the per-student lookup
+-- indexes for attendance, marks and fees.
+--
+-- Applied at startup by SchemaMigrator.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id  serial PRIMARY KEY,
+    email    text NOT NULL UNIQUE,
+    password text NOT NULL,
+    role     text NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS teachers (
+    teacher_id   serial PRIMARY KEY,
+    user_id      integer REFERENCES users (user_id) ON DELETE CASCADE,
+    teacher_code text NOT NULL UNIQUE,
+    full_name    text NOT NULL,
+    department   text,
+    subject      text,
+    classes      text[],
+    status       text NOT NULL DEFAULT 'Active'
+);
+
+CREATE TABLE IF NOT EXISTS students (
+    student_id  serial PRIMARY KEY,
+    roll_no     text NOT NULL,
+    full_name   text NOT NULL,
+    age         integer,
+    class_name  text NOT NULL,
+    father_name text,
+    phone       text,
+    email       text,
+    address     text,
+    teacher_id  integer REFERENCES teachers (teacher_id) ON DELETE SET NULL
+);
+
+CREATE TABLE IF NOT EXISTS attendance (
+    attendance_id   serial PRIMARY KEY,
+    student_id      integer NOT NULL REFERENCES students (student_id) ON DELETE CASCADE,
+    attendance_date date NOT NULL DEFAULT CURRENT_DATE,
+    status          text NOT NULL,
+    marked_by       integer,
+    UNIQUE (student_id, attendance_date)
+);
+
+CREATE TABLE IF NOT EXISTS marks (
+    mark_id    serial PRIMARY KEY,
+    student_id integer NOT NULL UNIQUE REFERENCES students (student_id) ON DELETE CASCADE,
+    unit1      integer,
+    unit2      integer,
+    midterm    integer,
+    final      integer,
+    updated_by integer
+);
+
+CREATE TABLE IF NOT EXISTS fees (
+    fee_id       serial PRIMARY KEY,
+    student_id   integer NOT NULL REFERENCES students (student_id) ON DELETE CASCADE,
+    month        text NOT NULL,
+    year         integer NOT NULL,
+    amount       numeric(10, 2) NOT NULL DEFAULT 5000.00,
+    status       text NOT NULL DEFAULT 'Pending',
+    payment_date date,
+    UNIQUE (student_id, year, month)
+);
+
+CREATE TABLE IF NOT EXISTS study_materials (
+    material_id   serial PRIMARY KEY,
+    teacher_id    integer NOT NULL REFERENCES teachers (teacher_id) ON DELETE CASCADE,
+    class_name    text NOT NULL,
+    title         text NOT NULL,
+    description   text,
+    material_type text,
+    upload_date   date NOT NULL DEFAULT CURRENT_DATE
+);
@@ -0,0 +1,21 @@
+-- Indexes for the admin teacher search (AdminFrame.filterTeachers).
+--
+-- The search matches LOWER(col) LIKE '%text%' on name, code and subject.
+-- A leading wildcard cannot use a b-tree, so these are trigram GIN indexes,
+-- which serve substring matches of three or more characters.
+--
+-- Applied at startup by SchemaMigrator.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS teachers_full_name_trgm_idx
+    ON teachers USING gin (LOWER(full_name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS teachers_teacher_code_trgm_idx
+    ON teachers USING gin (LOWER(teacher_code) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS teachers_subject_trgm_idx
+    ON teachers USING gin (LOWER(subject) gin_trgm_ops);
+
+-- Department filter and the default ORDER BY
+CREATE INDEX IF NOT EXISTS teachers_department_idx ON teachers (department, teacher_code);
@@ -0,0 +1,10 @@
+-- Index for the teacher's students roster (StudentsTableModel).
+--
+-- The roster is paged by keyset: WHERE class_name = ? AND teacher_id = ?
+-- AND roll_no >= ? ORDER BY roll_no LIMIT n. With this index each page is
+-- a short range scan, and the page index (row count plus the roll number
+-- each page starts at) is an index-only scan.
+--
+-- Applied at startup by SchemaMigrator.
+
+CREATE INDEX IF NOT EXISTS students_class_roll_idx ON students (teacher_id, class_name, roll_no);
@@ -0,0 +1,133 @@
+-- School-wide counters for the AdminFrame statistics cards (SchoolStats).
+--
+-- school_rollups holds a single row with total teachers, active teachers,
+-- distinct departments and distinct classes. Triggers on teachers keep it
+-- current on every insert, update and delete, so the dashboard reads all
+-- four cards with one primary-key lookup however many teachers there are.
+--
+-- Distinct departments and classes are tracked by reference counts: a
+-- department or class counts while at least one teacher has it.
+--
+-- Applied at startup by SchemaMigrator. Running the script again is safe
+-- and rebuilds the counters from teachers (SELECT rollup_rebuild()).
+
+CREATE TABLE IF NOT EXISTS school_rollups (
+    id              boolean PRIMARY KEY DEFAULT true CHECK (id),
+    total_teachers  integer NOT NULL DEFAULT 0,
+    active_teachers integer NOT NULL DEFAULT 0,
+    departments     integer NOT NULL DEFAULT 0,
+    total_classes   integer NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS rollup_department_teachers (
+    department text PRIMARY KEY,
+    teachers   integer NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS rollup_class_teachers (
+    class_name text PRIMARY KEY,
+    teachers   integer NOT NULL
+);
+
+-- Add (delta = 1) or remove (delta = -1) one teacher row's contribution
+CREATE OR REPLACE FUNCTION rollup_adjust_teacher(t teachers, delta integer) RETURNS void AS $$
+DECLARE
+    remaining integer;
+    cls text;
+BEGIN
+    UPDATE school_rollups
+       SET total_teachers  = total_teachers + delta,
+           active_teachers = active_teachers + CASE WHEN t.status = 'Active' THEN delta ELSE 0 END;
+
+    IF t.department IS NOT NULL THEN
+        INSERT INTO rollup_department_teachers AS d VALUES (t.department, delta)
+            ON CONFLICT (department) DO UPDATE SET teachers = d.teachers + delta
+            RETURNING d.teachers INTO remaining;
+        IF remaining = 0 THEN
+            DELETE FROM rollup_department_teachers WHERE department = t.department;
+            UPDATE school_rollups SET departments = departments - 1;
+        ELSIF delta > 0 AND remaining = delta THEN
+            UPDATE school_rollups SET departments = departments + 1;
+        END IF;
+    END IF;
+
+    FOR cls IN SELECT DISTINCT c FROM unnest(t.classes) AS c WHERE c IS NOT NULL AND c <> '' LOOP
+        INSERT INTO rollup_class_teachers AS r VALUES (cls, delta)
+            ON CONFLICT (class_name) DO UPDATE SET teachers = r.teachers + delta
+            RETURNING r.teachers INTO remaining;
+        IF remaining = 0 THEN
+            DELETE FROM rollup_class_teachers WHERE class_name = cls;
+            UPDATE school_rollups SET total_classes = total_classes - 1;
+        ELSIF delta > 0 AND remaining = delta THEN
+            UPDATE school_rollups SET total_classes = total_classes + 1;
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION teachers_rollup_row() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM rollup_adjust_teacher(OLD, -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM rollup_adjust_teacher(NEW, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Recompute everything from teachers; used for the initial fill and after TRUNCATE
+CREATE OR REPLACE FUNCTION rollup_rebuild() RETURNS void AS $$
+BEGIN
+    DELETE FROM rollup_department_teachers;
+    DELETE FROM rollup_class_teachers;
+
+    INSERT INTO rollup_department_teachers
+        SELECT department, COUNT(*) FROM teachers WHERE department IS NOT NULL GROUP BY department;
+    INSERT INTO rollup_class_teachers
+        SELECT c, COUNT(DISTINCT t.teacher_id) FROM teachers t, unnest(t.classes) AS c
+        WHERE c IS NOT NULL AND c <> '' GROUP BY c;
+
+    INSERT INTO school_rollups AS s (id, total_teachers, active_teachers, departments, total_classes)
+        SELECT true,
+               (SELECT COUNT(*) FROM teachers),
+               (SELECT COUNT(*) FROM teachers WHERE status = 'Active'),
+               (SELECT COUNT(*) FROM rollup_department_teachers),
+               (SELECT COUNT(*) FROM rollup_class_teachers)
+        ON CONFLICT (id) DO UPDATE SET
+            total_teachers  = EXCLUDED.total_teachers,
+            active_teachers = EXCLUDED.active_teachers,
+            departments     = EXCLUDED.departments,
+            total_classes   = EXCLUDED.total_classes;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION teachers_rollup_truncate() RETURNS trigger AS $$
+BEGIN
+    PERFORM rollup_rebuild();
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The migration runs in one transaction; hold off writers while the triggers
+-- go in so no change falls between the rebuild and the first trigger firing
+LOCK TABLE teachers IN SHARE ROW EXCLUSIVE MODE;
+
+DROP TRIGGER IF EXISTS teachers_rollup_insert_delete ON teachers;
+CREATE TRIGGER teachers_rollup_insert_delete
+    AFTER INSERT OR DELETE ON teachers
+    FOR EACH ROW EXECUTE FUNCTION teachers_rollup_row();
+
+-- Only changes to counted columns touch the counters
+DROP TRIGGER IF EXISTS teachers_rollup_update ON teachers;
+CREATE TRIGGER teachers_rollup_update
+    AFTER UPDATE OF status, department, classes ON teachers
+    FOR EACH ROW EXECUTE FUNCTION teachers_rollup_row();
+
+DROP TRIGGER IF EXISTS teachers_rollup_truncate ON teachers;
+CREATE TRIGGER teachers_rollup_truncate
+    AFTER TRUNCATE ON teachers
+    FOR EACH STATEMENT EXECUTE FUNCTION teachers_rollup_truncate();
+
+SELECT rollup_rebuild();
@@ -0,0 +1,75 @@
+-- Change notifications for open EduTrack windows (ChangeFeed).
+--
+-- Every insert, update and delete on the tables the screens show sends a
+-- NOTIFY on channel edutrack_changes. The payload says which teacher,
+-- class and student the row belongs to, so clients refresh only that
+-- class's affected tab and rows:
+--
+--   origin|table|op|teacher_id|student_id|class_name
+--
+-- origin is the writer's application_name, which lets a client skip its
+-- own changes. Identical payloads within a transaction are delivered
+-- once, so bulk writes to students notify once per class.
+--
+-- Applied at startup by SchemaMigrator.
+
+CREATE OR REPLACE FUNCTION edutrack_notify_change() RETURNS trigger AS $$
+DECLARE
+    r jsonb;
+    owner_teacher integer;
+    owner_class text;
+    student integer;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        r := to_jsonb(OLD);
+    ELSE
+        r := to_jsonb(NEW);
+    END IF;
+
+    IF TG_TABLE_NAME IN ('attendance', 'marks', 'fees') THEN
+        student := (r->>'student_id')::integer;
+        SELECT s.teacher_id, s.class_name INTO owner_teacher, owner_class
+          FROM students s WHERE s.student_id = student;
+    ELSE
+        owner_teacher := (r->>'teacher_id')::integer;
+        owner_class := r->>'class_name';
+        -- Roster changes refresh the whole class; leave the student out so they coalesce
+        student := NULL;
+    END IF;
+
+    PERFORM pg_notify('edutrack_changes', format('%s|%s|%s|%s|%s|%s',
+        current_setting('application_name'), TG_TABLE_NAME, lower(TG_OP),
+        owner_teacher, student, owner_class));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS students_notify_change ON students;
+CREATE TRIGGER students_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON students
+    FOR EACH ROW EXECUTE FUNCTION edutrack_notify_change();
+
+DROP TRIGGER IF EXISTS attendance_notify_change ON attendance;
+CREATE TRIGGER attendance_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON attendance
+    FOR EACH ROW EXECUTE FUNCTION edutrack_notify_change();
+
+DROP TRIGGER IF EXISTS marks_notify_change ON marks;
+CREATE TRIGGER marks_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON marks
+    FOR EACH ROW EXECUTE FUNCTION edutrack_notify_change();
+
+DROP TRIGGER IF EXISTS fees_notify_change ON fees;
+CREATE TRIGGER fees_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON fees
+    FOR EACH ROW EXECUTE FUNCTION edutrack_notify_change();
+
+DROP TRIGGER IF EXISTS study_materials_notify_change ON study_materials;
+CREATE TRIGGER study_materials_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON study_materials
+    FOR EACH ROW EXECUTE FUNCTION edutrack_notify_change();
+
+DROP TRIGGER IF EXISTS teachers_notify_change ON teachers;
+CREATE TRIGGER teachers_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON teachers
+    FOR EACH ROW EXECUTE FUNCTION edutrack_notify_change();
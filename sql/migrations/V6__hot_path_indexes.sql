@@ -0,0 +1,20 @@
+-- Indexes for the remaining per-class screen queries (QueryPlanCheck
+-- verifies that none of them scans a whole table).
+--
+-- Already covered elsewhere:
+--   students (teacher_id, class_name, roll_no)   V3, roster and every per-class join
+--   attendance (student_id, attendance_date)     unique key, today's status per student
+--   marks (student_id)                           unique key
+--   fees (student_id, year, month)               unique key (any column order serves
+--                                                the equality lookups)
+--
+-- Applied at startup by SchemaMigrator.
+
+-- Day-first attendance: present-today counts and the school export, which
+-- reads by date. status is included so the count never visits the table.
+CREATE INDEX IF NOT EXISTS attendance_date_student_idx
+    ON attendance (attendance_date, student_id) INCLUDE (status);
+
+-- Materials tab: one class's materials, newest first, without a sort
+CREATE INDEX IF NOT EXISTS study_materials_class_date_idx
+    ON study_materials (teacher_id, class_name, upload_date DESC);
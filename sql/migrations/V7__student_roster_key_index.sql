@@ -0,0 +1,14 @@
+-- Unique page key for the students roster (StudentsTableModel).
+--
+-- Roll numbers are not unique within a class, so the roster is paged by
+-- keyset on (roll_no, student_id): WHERE class_name = ? AND teacher_id = ?
+-- AND (roll_no, student_id) >= (?, ?) ORDER BY roll_no, student_id. This
+-- index serves that order directly and keeps the page index index-only.
+-- It also covers every lookup V3's index served, which it replaces.
+--
+-- Applied at startup by SchemaMigrator.
+
+CREATE INDEX IF NOT EXISTS students_class_roll_id_idx
+    ON students (teacher_id, class_name, roll_no, student_id);
+
+DROP INDEX IF EXISTS students_class_roll_idx;